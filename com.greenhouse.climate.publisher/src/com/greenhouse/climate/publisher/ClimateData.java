@@ -1,10 +1,11 @@
 package com.greenhouse.climate.publisher;
 
-public class ClimateData {
-    private String zoneId;
-    private double temperature;
-    private double humidity;
-    private long timestamp;
+// Immutable so readings can be shared between threads through published snapshots
+public final class ClimateData {
+    private final String zoneId;
+    private final double temperature;
+    private final double humidity;
+    private final long timestamp;
     
     public ClimateData(String zoneId, double temperature, double humidity) {
         this.zoneId = zoneId;
@@ -13,6 +14,13 @@ public class ClimateData {
         this.timestamp = System.currentTimeMillis();
     }
     
+    public ClimateData(String zoneId, double temperature, double humidity, long timestamp) {
+        this.zoneId = zoneId;
+        this.temperature = temperature;
+        this.humidity = humidity;
+        this.timestamp = timestamp;
+    }
+    
     public String getZoneId() {
         return zoneId;
     }
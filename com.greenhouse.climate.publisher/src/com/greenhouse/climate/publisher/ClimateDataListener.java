@@ -0,0 +1,9 @@
+package com.greenhouse.climate.publisher;
+
+import java.util.Map;
+
+public interface ClimateDataListener {
+    // Called once per sensor update with only the zones whose readings changed.
+    // Runs on the producer thread, so implementations should hand the data off quickly.
+    void climateDataChanged(Map<String, ClimateData> changedZones);
+}
@@ -0,0 +1,130 @@
+package com.greenhouse.climate.publisher;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+
+// Load generator that plays the part of one or more field gateways, sending batched
+// frames to a ClimateIngestionServer at a fixed reading rate.
+//
+// Usage: ClimateGatewaySimulator [host] [port] [zones] [readingsPerSecond] [readingsPerFrame] [gateways] [seconds]
+public class ClimateGatewaySimulator implements Runnable {
+    private final InetSocketAddress target;
+    private final int zones;
+    private final long readingsPerSecond;
+    private final int readingsPerFrame;
+    private final int gateways;
+    private final long durationMillis;
+    private volatile boolean running = true;
+    private long framesSent;
+    private long readingsSent;
+
+    public ClimateGatewaySimulator(String host, int port, int zones, long readingsPerSecond,
+            int readingsPerFrame, int gateways, long durationMillis) {
+        this.target = new InetSocketAddress(host, port);
+        this.zones = zones;
+        this.readingsPerSecond = readingsPerSecond;
+        this.readingsPerFrame = Math.max(1, Math.min(readingsPerFrame, ClimateIngestionServer.MAX_READINGS_PER_FRAME));
+        this.gateways = Math.max(1, Math.min(gateways, ClimateIngestionServer.MAX_GATEWAYS));
+        this.durationMillis = durationMillis;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 47800;
+        int zones = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        long rate = args.length > 3 ? Long.parseLong(args[3]) : 500000;
+        int perFrame = args.length > 4 ? Integer.parseInt(args[4]) : 64;
+        int gateways = args.length > 5 ? Integer.parseInt(args[5]) : 4;
+        long seconds = args.length > 6 ? Long.parseLong(args[6]) : 60;
+
+        ClimateGatewaySimulator simulator = new ClimateGatewaySimulator(host, port, zones, rate, perFrame,
+                gateways, seconds * 1000);
+        Thread thread = new Thread(simulator, "climate-gateway-simulator");
+        thread.start();
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        Random random = new Random();
+        ByteBuffer frame = ByteBuffer.allocateDirect(ClimateIngestionServer.HEADER_BYTES
+                + readingsPerFrame * ClimateIngestionServer.READING_BYTES);
+        int[] sequence = new int[gateways];
+        double[] temperature = new double[zones];
+        double[] humidity = new double[zones];
+        for (int zone = 0; zone < zones; zone++) {
+            temperature[zone] = 20.0 + random.nextDouble() * 6;
+            humidity[zone] = 55.0 + random.nextDouble() * 20;
+        }
+
+        System.out.println("[GatewaySimulator] Sending " + readingsPerSecond + " readings/s for " + zones
+                + " zones to " + target + " from " + gateways + " gateway(s)");
+
+        try (DatagramChannel udp = DatagramChannel.open()) {
+            long start = System.nanoTime();
+            long end = start + durationMillis * 1_000_000L;
+            long nextLog = start + 1_000_000_000L;
+            long readingsAtLastLog = 0;
+            int zone = 0;
+            int gateway = 0;
+
+            while (running && System.nanoTime() < end) {
+                // Stay on the schedule implied by the target rate
+                long due = start + readingsSent * 1_000_000_000L / Math.max(1, readingsPerSecond);
+                long wait = due - System.nanoTime();
+                if (wait > 200_000) {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+
+                long now = System.currentTimeMillis();
+                frame.clear();
+                frame.putInt(ClimateIngestionServer.FRAME_MAGIC);
+                frame.putShort((short) gateway);
+                frame.putShort((short) readingsPerFrame);
+                frame.putInt(sequence[gateway]++);
+                for (int i = 0; i < readingsPerFrame; i++) {
+                    temperature[zone] += (random.nextDouble() * 0.8) - 0.4;
+                    humidity[zone] = Math.max(0, Math.min(100, humidity[zone] + (random.nextDouble() * 2.0) - 1.0));
+                    frame.putInt(zone);
+                    frame.putFloat((float) temperature[zone]);
+                    frame.putFloat((float) humidity[zone]);
+                    frame.putLong(now);
+                    zone = zone + 1 == zones ? 0 : zone + 1;
+                }
+                frame.flip();
+                udp.send(frame, target);
+                framesSent++;
+                readingsSent += readingsPerFrame;
+                gateway = gateway + 1 == gateways ? 0 : gateway + 1;
+
+                long nanos = System.nanoTime();
+                if (nanos >= nextLog) {
+                    System.out.println("[GatewaySimulator] " + (readingsSent - readingsAtLastLog)
+                            + " readings/s sent, " + framesSent + " frames total");
+                    readingsAtLastLog = readingsSent;
+                    nextLog = nanos + 1_000_000_000L;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[GatewaySimulator] Send failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("[GatewaySimulator] Finished: " + readingsSent + " readings in " + framesSent + " frames");
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public long getFramesSent() {
+        return framesSent;
+    }
+
+    public long getReadingsSent() {
+        return readingsSent;
+    }
+}
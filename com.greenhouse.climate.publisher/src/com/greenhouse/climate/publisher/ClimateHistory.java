@@ -0,0 +1,153 @@
+package com.greenhouse.climate.publisher;
+
+// Fixed-size ring buffer of readings for every zone, kept in flat primitive arrays.
+// Zone z owns slots [z * capacity, (z + 1) * capacity), so memory is decided up front:
+// zones * capacity * 16 bytes, no matter how long the publisher runs.
+final class ClimateHistory {
+    // Zones are guarded in blocks of 64 so neighbouring zones updated by one shard share a lock
+    private static final int LOCK_STRIPES = 256;
+    // Timestamp plus temperature and humidity as floats, the precision gateways send them in
+    static final int BYTES_PER_READING = Long.BYTES + 2 * Float.BYTES;
+
+    private final int capacity;
+    private final long[] timestamps;
+    private final float[] temperatures;
+    private final float[] humidities;
+    private final int[] head;   // next slot to write, per zone
+    private final int[] count;  // number of readings held, per zone
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    ClimateHistory(int zoneCount, int capacity) {
+        // The flat arrays must stay addressable with an int index
+        long slots = (long) zoneCount * capacity;
+        if (capacity < 1 || slots > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Cannot index " + capacity + " readings for each of "
+                    + zoneCount + " zones");
+        }
+        this.capacity = capacity;
+
+        timestamps = new long[(int) slots];
+        temperatures = new float[(int) slots];
+        humidities = new float[(int) slots];
+        head = new int[zoneCount];
+        count = new int[zoneCount];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    long getMemoryBytes() {
+        return bytesFor(head.length, capacity);
+    }
+
+    // Memory the arrays take for the given layout, to check against a budget before allocating
+    static long bytesFor(int zoneCount, int capacity) {
+        return (long) zoneCount * capacity * BYTES_PER_READING;
+    }
+
+    private Object lockFor(int zone) {
+        return locks[(zone >>> 6) % LOCK_STRIPES];
+    }
+
+    // Keeps each zone in time order for the binary searches below: a reading older than the
+    // zone's newest is ignored and false returned. The oldest one is overwritten when full.
+    boolean append(int zone, double temperature, double humidity, long timestamp) {
+        synchronized (lockFor(zone)) {
+            if (count[zone] > 0 && timestamp < timestamps[slot(zone, count[zone] - 1)]) {
+                return false;
+            }
+            int slot = zone * capacity + head[zone];
+            timestamps[slot] = timestamp;
+            temperatures[slot] = (float) temperature;
+            humidities[slot] = (float) humidity;
+            head[zone] = head[zone] + 1 == capacity ? 0 : head[zone] + 1;
+            if (count[zone] < capacity) {
+                count[zone]++;
+            }
+            return true;
+        }
+    }
+
+    // Physical slot of the i-th oldest reading held for the zone
+    private int slot(int zone, int i) {
+        int position = head[zone] - count[zone] + i;
+        if (position < 0) {
+            position += capacity;
+        }
+        return zone * capacity + position;
+    }
+
+    // Index of the first held reading at or after the given time
+    private int firstAtOrAfter(int zone, long time) {
+        int low = 0;
+        int high = count[zone];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[slot(zone, mid)] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    ClimateHistorySeries range(String zoneId, int zone, long fromMillis, long toMillis) {
+        synchronized (lockFor(zone)) {
+            int from = firstAtOrAfter(zone, fromMillis);
+            int to = toMillis == Long.MAX_VALUE ? count[zone] : firstAtOrAfter(zone, toMillis + 1);
+            int size = Math.max(0, to - from);
+
+            long[] times = new long[size];
+            double[] temps = new double[size];
+            double[] hums = new double[size];
+            for (int i = 0; i < size; i++) {
+                int slot = slot(zone, from + i);
+                times[i] = timestamps[slot];
+                temps[i] = temperatures[slot];
+                hums[i] = humidities[slot];
+            }
+            return new ClimateHistorySeries(zoneId, times, temps, hums);
+        }
+    }
+
+    // Aggregates the readings within windowMillis of the zone's newest reading
+    ClimateStats stats(String zoneId, int zone, long windowMillis) {
+        synchronized (lockFor(zone)) {
+            int held = count[zone];
+            if (held == 0) {
+                return new ClimateStats(zoneId, 0, 0, 0, Double.NaN, Double.NaN, Double.NaN,
+                        Double.NaN, Double.NaN, Double.NaN);
+            }
+
+            long newest = timestamps[slot(zone, held - 1)];
+            int from = firstAtOrAfter(zone, newest - windowMillis);
+
+            double minTemp = Double.POSITIVE_INFINITY;
+            double maxTemp = Double.NEGATIVE_INFINITY;
+            double sumTemp = 0;
+            double minHum = Double.POSITIVE_INFINITY;
+            double maxHum = Double.NEGATIVE_INFINITY;
+            double sumHum = 0;
+            for (int i = from; i < held; i++) {
+                int slot = slot(zone, i);
+                double temp = temperatures[slot];
+                double hum = humidities[slot];
+                minTemp = Math.min(minTemp, temp);
+                maxTemp = Math.max(maxTemp, temp);
+                sumTemp += temp;
+                minHum = Math.min(minHum, hum);
+                maxHum = Math.max(maxHum, hum);
+                sumHum += hum;
+            }
+
+            int n = held - from;
+            return new ClimateStats(zoneId, n, timestamps[slot(zone, from)], newest,
+                    minTemp, maxTemp, sumTemp / n, minHum, maxHum, sumHum / n);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.greenhouse.climate.publisher;
+
+// Readings of one zone over a time range, oldest first, held in parallel primitive arrays
+public final class ClimateHistorySeries {
+    private final String zoneId;
+    private final long[] timestamps;
+    private final double[] temperatures;
+    private final double[] humidities;
+
+    ClimateHistorySeries(String zoneId, long[] timestamps, double[] temperatures, double[] humidities) {
+        this.zoneId = zoneId;
+        this.timestamps = timestamps;
+        this.temperatures = temperatures;
+        this.humidities = humidities;
+    }
+
+    public String getZoneId() {
+        return zoneId;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public long getTimestamp(int i) {
+        return timestamps[i];
+    }
+
+    public double getTemperature(int i) {
+        return temperatures[i];
+    }
+
+    public double getHumidity(int i) {
+        return humidities[i];
+    }
+}
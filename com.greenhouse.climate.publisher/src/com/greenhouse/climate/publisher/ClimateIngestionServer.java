@@ -0,0 +1,227 @@
+package com.greenhouse.climate.publisher;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+// Receives batched binary readings from field gateways over UDP and writes them straight
+// into the zone store. One thread owns the channel, the store and the decode buffer, so
+// decoding a reading allocates nothing.
+//
+// Frame layout (big-endian):
+//   int   magic     FRAME_MAGIC
+//   short gateway   sender id, 0..MAX_GATEWAYS-1
+//   short count     number of readings that follow
+//   int   sequence  per-gateway frame counter, used to detect lost frames
+//   count x { int zone, float temperature, float humidity, long timestamp }
+public class ClimateIngestionServer implements Runnable {
+    public static final int FRAME_MAGIC = 0x47484331; // "GHC1"
+    public static final int HEADER_BYTES = 12;
+    public static final int READING_BYTES = 20;
+    public static final int MAX_READINGS_PER_FRAME = (65507 - HEADER_BYTES) / READING_BYTES;
+    public static final int MAX_GATEWAYS = 1024;
+
+    // Called on the ingestion thread whenever new readings should be made visible to readers
+    public interface PublishCallback {
+        void publish();
+    }
+
+    private final int port;
+    private final ClimateZoneStore store;
+    private final ClimateHistory history;
+    private final PublishCallback publisher;
+    private final long publishIntervalMillis;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(65536);
+    private final int[] lastSequence = new int[MAX_GATEWAYS];
+    private final boolean[] gatewaySeen = new boolean[MAX_GATEWAYS];
+
+    private volatile DatagramChannel channel;
+    private volatile Selector selector;
+    private volatile boolean running = true;
+
+    // Written only by the ingestion thread, read by anyone
+    private volatile long framesReceived;
+    private volatile long readingsAccepted;
+    private volatile long framesLost;
+    private volatile long framesMalformed;
+    private volatile long readingsRejected;
+    private volatile long readingsStale;
+    private volatile long framesLate;
+
+    ClimateIngestionServer(int port, ClimateZoneStore store, ClimateHistory history,
+            PublishCallback publisher, long publishIntervalMillis) {
+        this.port = port;
+        this.store = store;
+        this.history = history;
+        this.publisher = publisher;
+        if (publishIntervalMillis < 1) {
+            throw new IllegalArgumentException("Publish interval must be at least 1 ms: " + publishIntervalMillis);
+        }
+        this.publishIntervalMillis = publishIntervalMillis;
+    }
+
+    @Override
+    public void run() {
+        try (DatagramChannel udp = DatagramChannel.open();
+                Selector readySelector = Selector.open()) {
+            udp.setOption(StandardSocketOptions.SO_RCVBUF, 8 * 1024 * 1024);
+            udp.bind(new InetSocketAddress(port));
+            udp.configureBlocking(false);
+            udp.register(readySelector, SelectionKey.OP_READ);
+            channel = udp;
+            selector = readySelector;
+            System.out.println("[ClimateIngestion] Listening for gateway frames on UDP port " + port);
+
+            long nextPublish = System.currentTimeMillis() + publishIntervalMillis;
+            long nextLog = System.currentTimeMillis() + 10000;
+            long readingsAtLastLog = 0;
+            boolean dirty = false;
+
+            while (running) {
+                readySelector.select(publishIntervalMillis);
+                readySelector.selectedKeys().clear();
+
+                // Drain everything the kernel has queued before publishing
+                while (running) {
+                    buffer.clear();
+                    if (udp.receive(buffer) == null) {
+                        break;
+                    }
+                    buffer.flip();
+                    dirty |= decodeFrame(buffer);
+                }
+
+                long now = System.currentTimeMillis();
+                if (dirty && now >= nextPublish) {
+                    publisher.publish();
+                    dirty = false;
+                    nextPublish = now + publishIntervalMillis;
+                }
+                if (now >= nextLog) {
+                    long accepted = readingsAccepted;
+                    if (accepted != readingsAtLastLog) {
+                        System.out.println("[ClimateIngestion] " + (accepted - readingsAtLastLog) / 10
+                                + " readings/s, lost frames: " + framesLost + ", malformed frames: "
+                                + framesMalformed + ", late frames: " + framesLate + ", rejected readings: "
+                                + readingsRejected + ", stale readings: " + readingsStale);
+                        readingsAtLastLog = accepted;
+                    }
+                    nextLog = now + 10000;
+                }
+            }
+        } catch (ClosedChannelException e) {
+            // stop() closed the channel
+        } catch (IOException e) {
+            System.err.println("[ClimateIngestion] Ingestion stopped: " + e.getMessage());
+        } finally {
+            channel = null;
+            selector = null;
+        }
+    }
+
+    // Returns true if at least one reading was stored
+    private boolean decodeFrame(ByteBuffer frame) {
+        framesReceived++;
+        if (frame.remaining() < HEADER_BYTES || frame.getInt() != FRAME_MAGIC) {
+            framesMalformed++;
+            return false;
+        }
+        int gateway = frame.getShort() & 0xFFFF;
+        int count = frame.getShort() & 0xFFFF;
+        int sequence = frame.getInt();
+        if (gateway >= MAX_GATEWAYS || frame.remaining() != count * READING_BYTES) {
+            framesMalformed++;
+            return false;
+        }
+
+        // Gaps in a gateway's sequence are frames lost on the way (or in the socket buffer).
+        // A frame behind the newest one seen arrived out of order and leaves the sequence alone.
+        if (!gatewaySeen[gateway]) {
+            gatewaySeen[gateway] = true;
+            lastSequence[gateway] = sequence;
+        } else {
+            int gap = sequence - lastSequence[gateway] - 1;
+            if (gap >= 0) {
+                framesLost += gap;
+                lastSequence[gateway] = sequence;
+            } else {
+                framesLate++;
+            }
+        }
+
+        int zoneCount = store.size();
+        int accepted = 0;
+        int stale = 0;
+        for (int i = 0; i < count; i++) {
+            int zone = frame.getInt();
+            double temperature = frame.getFloat();
+            double humidity = frame.getFloat();
+            long timestamp = frame.getLong();
+            if (zone < 0 || zone >= zoneCount || Double.isNaN(temperature) || Double.isNaN(humidity)) {
+                continue;
+            }
+            // Reordered frames, or two gateways covering one zone, can deliver an older reading late
+            if (!store.set(zone, temperature, humidity, timestamp)) {
+                stale++;
+                continue;
+            }
+            history.append(zone, temperature, humidity, timestamp);
+            accepted++;
+        }
+        readingsAccepted += accepted;
+        readingsStale += stale;
+        readingsRejected += count - accepted - stale;
+        return accepted > 0;
+    }
+
+    public void stop() {
+        running = false;
+        Selector readySelector = selector;
+        if (readySelector != null) {
+            readySelector.wakeup();
+        }
+        DatagramChannel udp = channel;
+        if (udp != null) {
+            try {
+                udp.close();
+            } catch (IOException e) {
+                // Already closing
+            }
+        }
+    }
+
+    public long getFramesReceived() {
+        return framesReceived;
+    }
+
+    public long getReadingsAccepted() {
+        return readingsAccepted;
+    }
+
+    public long getFramesLost() {
+        return framesLost;
+    }
+
+    public long getFramesMalformed() {
+        return framesMalformed;
+    }
+
+    public long getReadingsRejected() {
+        return readingsRejected;
+    }
+
+    // Readings older than the zone's latest one, ignored
+    public long getReadingsStale() {
+        return readingsStale;
+    }
+
+    // Frames that arrived behind a newer frame from the same gateway
+    public long getFramesLate() {
+        return framesLate;
+    }
+}
@@ -0,0 +1,128 @@
+package com.greenhouse.climate.publisher;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// Immutable view of every zone's latest reading, published once per update cycle.
+// Readers can hold on to a snapshot without locking and compare versions to skip unchanged data.
+// Readings are stored as primitive arrays indexed by zone number; ClimateData objects are only
+// created when a caller asks for one.
+public final class ClimateSnapshot {
+    private final long version;
+    private final String[] zoneIds;
+    private final Map<String, Integer> zoneIndex;
+    private final double[] temperature;
+    private final double[] humidity;
+    private final long[] timestamp;
+    private final Map<String, ClimateData> zoneView = new ZoneView();
+
+    ClimateSnapshot(long version, String[] zoneIds, Map<String, Integer> zoneIndex,
+            double[] temperature, double[] humidity, long[] timestamp) {
+        this.version = version;
+        this.zoneIds = zoneIds;
+        this.zoneIndex = zoneIndex;
+        this.temperature = temperature;
+        this.humidity = humidity;
+        this.timestamp = timestamp;
+    }
+
+    // Increases by one every time the producer publishes new readings
+    public long getVersion() {
+        return version;
+    }
+
+    public int getZoneCount() {
+        return zoneIds.length;
+    }
+
+    public String getZoneId(int index) {
+        return zoneIds[index];
+    }
+
+    // Returns the zone's position in this snapshot, or -1 if the zone is unknown
+    public int indexOf(String zoneId) {
+        Integer index = zoneIndex.get(zoneId);
+        return index != null ? index : -1;
+    }
+
+    public ClimateData getClimateData(int index) {
+        return new ClimateData(zoneIds[index], temperature[index], humidity[index], timestamp[index]);
+    }
+
+    public ClimateData getClimateData(String zoneId) {
+        int index = indexOf(zoneId);
+        return index >= 0 ? getClimateData(index) : null;
+    }
+
+    public double getTemperature(int index) {
+        return temperature[index];
+    }
+
+    public double getHumidity(int index) {
+        return humidity[index];
+    }
+
+    public long getTimestamp(int index) {
+        return timestamp[index];
+    }
+
+    // Read-only map of zone ID to reading, backed directly by this snapshot's arrays
+    public Map<String, ClimateData> asMap() {
+        return zoneView;
+    }
+
+    private final class ZoneView extends AbstractMap<String, ClimateData> {
+        private final Set<Map.Entry<String, ClimateData>> entries = new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, ClimateData>> iterator() {
+                return new Iterator<>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < zoneIds.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, ClimateData> next() {
+                        if (next >= zoneIds.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = next++;
+                        return new AbstractMap.SimpleImmutableEntry<>(zoneIds[index], getClimateData(index));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return zoneIds.length;
+            }
+        };
+
+        @Override
+        public Set<Map.Entry<String, ClimateData>> entrySet() {
+            return entries;
+        }
+
+        @Override
+        public int size() {
+            return zoneIds.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return zoneIndex.containsKey(key);
+        }
+
+        @Override
+        public ClimateData get(Object key) {
+            Integer index = zoneIndex.get(key);
+            return index != null ? getClimateData(index) : null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.greenhouse.climate.publisher;
+
+// Min/max/mean of one zone's readings over a time window.
+// Values are NaN when the window holds no readings.
+public final class ClimateStats {
+    private final String zoneId;
+    private final int count;
+    private final long fromTimestamp;
+    private final long toTimestamp;
+    private final double minTemperature;
+    private final double maxTemperature;
+    private final double meanTemperature;
+    private final double minHumidity;
+    private final double maxHumidity;
+    private final double meanHumidity;
+
+    ClimateStats(String zoneId, int count, long fromTimestamp, long toTimestamp,
+            double minTemperature, double maxTemperature, double meanTemperature,
+            double minHumidity, double maxHumidity, double meanHumidity) {
+        this.zoneId = zoneId;
+        this.count = count;
+        this.fromTimestamp = fromTimestamp;
+        this.toTimestamp = toTimestamp;
+        this.minTemperature = minTemperature;
+        this.maxTemperature = maxTemperature;
+        this.meanTemperature = meanTemperature;
+        this.minHumidity = minHumidity;
+        this.maxHumidity = maxHumidity;
+        this.meanHumidity = meanHumidity;
+    }
+
+    public String getZoneId() {
+        return zoneId;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getFromTimestamp() {
+        return fromTimestamp;
+    }
+
+    public long getToTimestamp() {
+        return toTimestamp;
+    }
+
+    public double getMinTemperature() {
+        return minTemperature;
+    }
+
+    public double getMaxTemperature() {
+        return maxTemperature;
+    }
+
+    public double getMeanTemperature() {
+        return meanTemperature;
+    }
+
+    public double getMinHumidity() {
+        return minHumidity;
+    }
+
+    public double getMaxHumidity() {
+        return maxHumidity;
+    }
+
+    public double getMeanHumidity() {
+        return meanHumidity;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s - %d readings, Temperature: %.1f-%.1f°C (avg %.1f), Humidity: %.1f-%.1f%% (avg %.1f)",
+                zoneId, count, minTemperature, maxTemperature, meanTemperature,
+                minHumidity, maxHumidity, meanHumidity);
+    }
+}
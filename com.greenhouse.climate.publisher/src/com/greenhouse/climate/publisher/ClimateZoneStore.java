@@ -0,0 +1,54 @@
+package com.greenhouse.climate.publisher;
+
+import java.util.Arrays;
+import java.util.Map;
+
+// Structure-of-arrays store for the latest reading of every zone, indexed by zone number.
+// Owned by the writer side of the publisher; readers only ever see copies through ClimateSnapshot.
+final class ClimateZoneStore {
+    private final double[] temperature;
+    private final double[] humidity;
+    private final long[] timestamp;
+
+    ClimateZoneStore(int zoneCount) {
+        temperature = new double[zoneCount];
+        humidity = new double[zoneCount];
+        timestamp = new long[zoneCount];
+    }
+
+    int size() {
+        return temperature.length;
+    }
+
+    // A reading older than the zone's latest one is ignored and false returned, so a late
+    // frame cannot replace a newer value
+    boolean set(int zone, double temp, double hum, long time) {
+        if (time < timestamp[zone]) {
+            return false;
+        }
+        temperature[zone] = temp;
+        humidity[zone] = hum;
+        timestamp[zone] = time;
+        return true;
+    }
+
+    double getTemperature(int zone) {
+        return temperature[zone];
+    }
+
+    double getHumidity(int zone) {
+        return humidity[zone];
+    }
+
+    long getTimestamp(int zone) {
+        return timestamp[zone];
+    }
+
+    // Copy the current readings into an immutable snapshot
+    ClimateSnapshot snapshot(long version, String[] zoneIds, Map<String, Integer> zoneIndex) {
+        return new ClimateSnapshot(version, zoneIds, zoneIndex,
+                Arrays.copyOf(temperature, temperature.length),
+                Arrays.copyOf(humidity, humidity.length),
+                Arrays.copyOf(timestamp, timestamp.length));
+    }
+}
@@ -1,76 +1,294 @@
 package com.greenhouse.climate.publisher;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.greenhouse.common.sensorlog.SensorChannel;
+import com.greenhouse.common.sensorlog.SensorRecorder;
+import com.greenhouse.common.sensorlog.SensorReplay;
+import com.greenhouse.common.sensorlog.SensorStreamConfig;
+import com.greenhouse.zoneregistry.ZoneRegistry;
 
 public class TemperatureHumidityProducer implements TemperatureHumidityService {
-    private Random random = new Random();
-    private Map<String, ClimateData> zoneClimateData = new HashMap<>();
+    // Live, record or replay, plus seed and update interval for repeatable runs
+    private final SensorStreamConfig streamConfig = SensorStreamConfig.forSource("climate");
+    private Random random = streamConfig.newRandom();
+    private volatile SensorRecorder recorder;
+    // Latest readings, replaced as a whole by the producer thread once per update cycle
+    private volatile ClimateSnapshot snapshot;
+    private long snapshotVersion = 0;
     private ExecutorService executorService;
+    private ExecutorService shardExecutor;
+    private ClimateIngestionServer ingestionServer;
     private volatile boolean running = true;
+    private final CopyOnWriteArrayList<ClimateDataListener> listeners = new CopyOnWriteArrayList<>();
+    
+    // Zones come from the shared registry; crop types and optimal ranges are the subscriber's concern
+    private static final String[] GREENHOUSE_ZONES = ZoneRegistry.getDefault().getZoneNames();
+    
+    // Number of sensor zones and update shards, overridable for large sites
+    private static final int ZONE_COUNT = Integer.getInteger("greenhouse.climate.zones", GREENHOUSE_ZONES.length);
+    private static final int SHARD_COUNT = Integer.getInteger("greenhouse.climate.shards",
+            Runtime.getRuntime().availableProcessors());
+    
+    // Readings kept per zone (default: one day at the 30 second update rate)
+    private static final int HISTORY_SIZE = Integer.getInteger("greenhouse.climate.historySize", 2880);
+    // Most memory the history may take; the service refuses to start rather than run out of heap
+    private static final long HISTORY_BUDGET_MB = Long.getLong("greenhouse.climate.historyBudgetMb", 512);
+    
+    // UDP port for real gateway readings; when set, the random simulation is switched off
+    private static final int INGEST_PORT = Integer.getInteger("greenhouse.climate.ingest.port", 0);
+    // At least 1 ms: the ingestion server waits on select(interval), where 0 would mean "until traffic arrives"
+    private static final long PUBLISH_INTERVAL_MS = Math.max(1, Long.getLong("greenhouse.climate.publishIntervalMs", 1000));
+    
+    // Zones below this many per shard are not worth handing to another thread
+    private static final int MIN_ZONES_PER_SHARD = 1024;
     
-    // Just define zones, no crop types or optimal ranges
-    private static final String[] GREENHOUSE_ZONES = {
-        "Zone-A", "Zone-B", "Zone-C", "Zone-D", "Zone-E" 
-    };
+    private final String[] zoneIds;
+    private final Map<String, Integer> zoneIndex = new HashMap<>();
+    private final ClimateZoneStore store;
+    private final ClimateHistory history;
+    private final List<Callable<Void>> shardTasks = new ArrayList<>();
     
     public TemperatureHumidityProducer() {
+        zoneIds = createZoneIds(ZONE_COUNT);
+        for (int i = 0; i < zoneIds.length; i++) {
+            zoneIndex.put(zoneIds[i], i);
+        }
+        store = new ClimateZoneStore(zoneIds.length);
+        long historyBytes = ClimateHistory.bytesFor(zoneIds.length, HISTORY_SIZE);
+        if (historyBytes > HISTORY_BUDGET_MB << 20) {
+            throw new IllegalStateException("Climate history of " + HISTORY_SIZE + " readings for "
+                    + zoneIds.length + " zones needs " + (historyBytes >> 20) + " MB, over the "
+                    + HISTORY_BUDGET_MB + " MB budget; lower greenhouse.climate.historySize or raise "
+                    + "greenhouse.climate.historyBudgetMb");
+        }
+        history = new ClimateHistory(zoneIds.length, HISTORY_SIZE);
+        
         // Initialize with realistic climate data for each zone
-        for (String zoneId : GREENHOUSE_ZONES) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < zoneIds.length; i++) {
             // Start with reasonable temperature and humidity values
             double initialTemp = 23.0 + (random.nextDouble() * 6) - 3; // 20-26°C range initially
             double initialHumidity = 65.0 + (random.nextDouble() * 20) - 10; // 55-75% range initially
-            
-            // Create climate data for zone
-            ClimateData data = new ClimateData(zoneId, initialTemp, initialHumidity);
-            zoneClimateData.put(zoneId, data);
+            store.set(i, initialTemp, initialHumidity, now);
+            history.append(i, initialTemp, initialHumidity, now);
+        }
+        publishSnapshot();
+        
+        // Split the zones into contiguous shards, each with its own random source
+        int shards = Math.max(1, Math.min(SHARD_COUNT, zoneIds.length / MIN_ZONES_PER_SHARD));
+        for (int shard = 0; shard < shards; shard++) {
+            int from = (int) ((long) zoneIds.length * shard / shards);
+            int to = (int) ((long) zoneIds.length * (shard + 1) / shards);
+            Random shardRandom = new Random(random.nextLong());
+            shardTasks.add(() -> {
+                updateZoneRange(from, to, shardRandom, System.currentTimeMillis());
+                return null;
+            });
         }
         
-        System.out.println("[TemperatureHumidityProducer] Initialized sensors for " + GREENHOUSE_ZONES.length + " zones");
+        System.out.println("[TemperatureHumidityProducer] Initialized sensors for " + zoneIds.length
+                + " zones in " + shards + " update shard(s), keeping " + history.getCapacity()
+                + " readings per zone (" + (history.getMemoryBytes() >> 20) + " MB)");
+    }
+    
+    // Registry zones come first; larger simulated sites get numbered zones after them
+    private static String[] createZoneIds(int count) {
+        String[] ids = new String[Math.max(count, 0)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i < GREENHOUSE_ZONES.length ? GREENHOUSE_ZONES[i] : String.format("Zone-%05d", i + 1);
+        }
+        return ids;
     }
     
     public void start() {
+        if (INGEST_PORT > 0) {
+            // Readings come from field gateways; the ingestion thread owns the store from now on
+            ingestionServer = new ClimateIngestionServer(INGEST_PORT, store, history, this::publishAndNotify,
+                    PUBLISH_INTERVAL_MS);
+            executorService = Executors.newSingleThreadExecutor();
+            executorService.execute(ingestionServer);
+            System.out.println("[TemperatureHumidityProducer] Service started. Ingesting gateway readings on port "
+                    + INGEST_PORT + ", publishing every " + PUBLISH_INTERVAL_MS + " ms.");
+            return;
+        }
+        
+        if (streamConfig.getMode() == SensorStreamConfig.Mode.REPLAY) {
+            // Feed a previous recording through the same snapshots and listeners
+            executorService = Executors.newSingleThreadExecutor();
+            executorService.execute(this::replayClimateData);
+            System.out.println("[TemperatureHumidityProducer] Service started. " + streamConfig);
+            return;
+        }
+        
+        if (streamConfig.getMode() == SensorStreamConfig.Mode.RECORD) {
+            try {
+                recorder = streamConfig.openRecorder();
+            } catch (IOException e) {
+                System.err.println("[TemperatureHumidityProducer] Cannot record climate data: " + e.getMessage());
+            }
+        }
+        
+        // Shard workers only exist when there is more than one shard
+        if (shardTasks.size() > 1) {
+            shardExecutor = Executors.newFixedThreadPool(shardTasks.size());
+        }
+        
         // Start a thread to periodically update climate data
         executorService = Executors.newSingleThreadExecutor();
         executorService.execute(this::updateClimateData);
-        System.out.println("[TemperatureHumidityProducer] Service started. Generating data every 30 seconds.");
+        System.out.println("[TemperatureHumidityProducer] Service started. Generating data every "
+                + streamConfig.getIntervalMillis() / 1000.0 + " seconds (" + streamConfig + ").");
+    }
+    
+    private void replayClimateData() {
+        SensorReplay replay = streamConfig.openReplay();
+        try {
+            long cycles = replay.run(new SensorReplay.Handler() {
+                private double temperature;
+                
+                @Override
+                public void reading(long timestamp, int zone, int channel, double value) {
+                    if (zone < 0 || zone >= store.size()) {
+                        return;
+                    }
+                    // Temperature is always recorded right before the humidity of the same zone
+                    if (channel == SensorChannel.TEMPERATURE) {
+                        temperature = value;
+                    } else if (channel == SensorChannel.HUMIDITY) {
+                        store.set(zone, temperature, value, timestamp);
+                        history.append(zone, temperature, value, timestamp);
+                    }
+                }
+                
+                @Override
+                public void tick(long timestamp) {
+                    publishAndNotify();
+                }
+            });
+            System.out.println("[TemperatureHumidityProducer] Replay finished after " + cycles + " update cycles");
+        } catch (IOException e) {
+            System.err.println("[TemperatureHumidityProducer] Replay failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            System.out.println("[TemperatureHumidityProducer] Climate replay interrupted");
+        }
+    }
+    
+    private void recordCycle() {
+        SensorRecorder recorder = this.recorder;
+        try {
+            for (int zone = 0; zone < store.size(); zone++) {
+                long timestamp = store.getTimestamp(zone);
+                recorder.record(timestamp, zone, SensorChannel.TEMPERATURE, store.getTemperature(zone));
+                recorder.record(timestamp, zone, SensorChannel.HUMIDITY, store.getHumidity(zone));
+            }
+            recorder.endTick(System.currentTimeMillis());
+        } catch (IOException e) {
+            System.err.println("[TemperatureHumidityProducer] Recording stopped: " + e.getMessage());
+            closeRecorder();
+        }
+    }
+    
+    private void closeRecorder() {
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                // Nothing more to save
+            }
+            recorder = null;
+        }
     }
     
     private void updateClimateData() {
         while (running) {
             try {
-                // Update climate data for each zone
-                for (String zoneId : GREENHOUSE_ZONES) {
-                    updateZoneClimate(zoneId);
+                // Update every zone in the store, then publish the result in one step
+                updateAllZones();
+                if (recorder != null) {
+                    recordCycle();
                 }
+                publishAndNotify();
                 
                 // Wait before the next update
-                Thread.sleep(30000); // Update every 30 seconds (changed from 10 seconds)
+                Thread.sleep(streamConfig.getIntervalMillis()); // 30 seconds unless configured otherwise
             } catch (InterruptedException e) {
                 System.out.println("[TemperatureHumidityProducer] Climate monitoring interrupted");
                 running = false;
                 break;
+            } catch (ExecutionException e) {
+                System.err.println("[TemperatureHumidityProducer] Error updating climate data: " + e.getCause());
             }
         }
     }
     
-    private void updateZoneClimate(String zoneId) {
-        ClimateData currentData = zoneClimateData.get(zoneId);
+    private void updateAllZones() throws InterruptedException, ExecutionException {
+        if (shardExecutor == null) {
+            updateZoneRange(0, zoneIds.length, random, System.currentTimeMillis());
+            return;
+        }
         
+        // Each shard owns a disjoint range of the store, so no locking is needed
+        for (Future<Void> result : shardExecutor.invokeAll(shardTasks)) {
+            result.get();
+        }
+    }
+    
+    private void updateZoneRange(int from, int to, Random rnd, long now) {
+        for (int zone = from; zone < to; zone++) {
+            updateZoneClimate(zone, rnd, now);
+        }
+    }
+    
+    private void publishAndNotify() {
+        ClimateSnapshot published = publishSnapshot();
+        
+        // Push the changes to subscribers instead of making them poll
+        notifyListeners(published.asMap());
+    }
+    
+    private ClimateSnapshot publishSnapshot() {
+        // Only the producer thread publishes, so a plain counter is enough for the version
+        ClimateSnapshot next = store.snapshot(++snapshotVersion, zoneIds, zoneIndex);
+        snapshot = next;
+        return next;
+    }
+    
+    private void notifyListeners(Map<String, ClimateData> changedZones) {
+        for (ClimateDataListener listener : listeners) {
+            try {
+                listener.climateDataChanged(changedZones);
+            } catch (RuntimeException e) {
+                // A faulty subscriber must not stop the sensor updates
+                System.err.println("[TemperatureHumidityProducer] Listener failed: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void updateZoneClimate(int zone, Random rnd, long now) {
         // Get current values
-        double currentTemp = currentData.getTemperature();
-        double currentHumidity = currentData.getHumidity();
+        double currentTemp = store.getTemperature(zone);
+        double currentHumidity = store.getHumidity(zone);
         
         // Simulate climate fluctuations
-        double tempDelta = (random.nextDouble() * 0.8) - 0.4; // -0.4 to +0.4°C
-        double humidityDelta = (random.nextDouble() * 2.0) - 1.0; // -1.0 to +1.0%
+        double tempDelta = (rnd.nextDouble() * 0.8) - 0.4; // -0.4 to +0.4°C
+        double humidityDelta = (rnd.nextDouble() * 2.0) - 1.0; // -1.0 to +1.0%
         
         // Periodically simulate more significant changes (weather events)
-        if (random.nextInt(20) == 0) { // 5% chance of weather event
-            if (random.nextBoolean()) {
+        if (rnd.nextInt(20) == 0) { // 5% chance of weather event
+            if (rnd.nextBoolean()) {
                 // Sunny day event (no logging)
                 tempDelta += 2.0;
                 humidityDelta -= 4.0;
@@ -88,33 +306,81 @@ public class TemperatureHumidityProducer implements TemperatureHumidityService {
         // Keep humidity within realistic bounds (0-100%)
         newHumidity = Math.max(0, Math.min(100, newHumidity));
         
-        // Update the climate data for this zone
-        ClimateData newData = new ClimateData(zoneId, newTemp, newHumidity);
-        zoneClimateData.put(zoneId, newData);
-        
+        // Update the climate data for this zone in place
         // No logging here - all logging will be done in the consumer
+        store.set(zone, newTemp, newHumidity, now);
+        history.append(zone, newTemp, newHumidity, now);
     }
     
     public void stop() {
         running = false;
+        if (ingestionServer != null) {
+            ingestionServer.stop();
+        }
         if (executorService != null) {
-            executorService.shutdown();
+            executorService.shutdownNow(); // wake the update thread instead of waiting out its sleep
+        }
+        if (shardExecutor != null) {
+            shardExecutor.shutdownNow();
+        }
+        if (executorService != null) {
+            try {
+                // Let the update thread finish its cycle before the recording is closed
+                executorService.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
+        closeRecorder();
         System.out.println("[TemperatureHumidityProducer] Service stopped");
     }
-
+    
+    // Counters of the gateway ingestion stage, or null when the simulation is running instead
+    public ClimateIngestionServer getIngestionServer() {
+        return ingestionServer;
+    }
+    
     @Override
     public Map<String, ClimateData> getAllZonesClimateData() {
-        return new HashMap<>(zoneClimateData);  // Return a copy to prevent modification
+        return snapshot.asMap();  // Read-only view of the latest snapshot, no copy needed
     }
     
     @Override
     public ClimateData getZoneClimateData(String zoneId) {
-        return zoneClimateData.get(zoneId);
+        return snapshot.getClimateData(zoneId);
+    }
+    
+    @Override
+    public ClimateSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    @Override
+    public ClimateHistorySeries getZoneHistory(String zoneId, long fromMillis, long toMillis) {
+        Integer zone = zoneIndex.get(zoneId);
+        return zone != null ? history.range(zoneId, zone, fromMillis, toMillis) : null;
+    }
+    
+    @Override
+    public ClimateStats getZoneStats(String zoneId, long windowMillis) {
+        Integer zone = zoneIndex.get(zoneId);
+        return zone != null ? history.stats(zoneId, zone, windowMillis) : null;
     }
     
     @Override
     public String[] getAvailableZones() {
-        return GREENHOUSE_ZONES;
+        return zoneIds.clone();
+    }
+    
+    @Override
+    public void addClimateDataListener(ClimateDataListener listener) {
+        if (listener != null) {
+            listeners.addIfAbsent(listener);
+        }
+    }
+    
+    @Override
+    public void removeClimateDataListener(ClimateDataListener listener) {
+        listeners.remove(listener);
     }
-}
\ No newline at end of file
+}
@@ -3,12 +3,27 @@ package com.greenhouse.climate.publisher;
 import java.util.Map;
 
 public interface TemperatureHumidityService {
-    // Get climate data for all zones
+    // Get climate data for all zones (read-only)
     Map<String, ClimateData> getAllZonesClimateData();
     
     // Get climate data for a specific zone
     ClimateData getZoneClimateData(String zoneId);
     
+    // Get a consistent, versioned view of all zones without copying
+    ClimateSnapshot getSnapshot();
+    
+    // Get a zone's recorded readings between two times (inclusive), or null for an unknown zone
+    ClimateHistorySeries getZoneHistory(String zoneId, long fromMillis, long toMillis);
+    
+    // Get min/max/mean of a zone's readings over the last windowMillis, or null for an unknown zone
+    ClimateStats getZoneStats(String zoneId, long windowMillis);
+    
     // Get all available zone IDs
     String[] getAvailableZones();
-}
\ No newline at end of file
+    
+    // Subscribe to per-zone climate changes as they are produced
+    void addClimateDataListener(ClimateDataListener listener);
+    
+    // Stop receiving climate changes
+    void removeClimateDataListener(ClimateDataListener listener);
+}
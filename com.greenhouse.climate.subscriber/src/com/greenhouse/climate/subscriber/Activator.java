@@ -1,69 +1,77 @@
 package com.greenhouse.climate.subscriber;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
-import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
 import com.greenhouse.climate.publisher.TemperatureHumidityService;
+import com.greenhouse.common.binding.ServiceBinding;
+import com.greenhouse.report.ForwardingReporter;
 import com.greenhouse.report.IGreenhouseReporter;
 
-public class Activator implements BundleActivator {
-    private ServiceReference<TemperatureHumidityService> serviceReference;
-    private ServiceReference<IGreenhouseReporter> reporterRef;
+public class Activator implements BundleActivator, ServiceBinding.Listener<TemperatureHumidityService> {
+    private BundleContext context;
+    // The climate manager follows the climate service: started when a provider is bound, stopped when it goes
+    private ServiceBinding<TemperatureHumidityService> climateBinding;
+    private ServiceBinding<IGreenhouseReporter> reporterBinding;
     private CoolingHeatingManager climateManager;
+    private ServiceRegistration<?> hvacStateRegistration;
     private IGreenhouseReporter reporter;
     
     @Override
     public void start(BundleContext context) throws Exception {
         System.out.println("[ClimateSubscriber] Starting service...");
+        this.context = context;
         
-        // First, try to get the reporter service
-        reporterRef = context.getServiceReference(IGreenhouseReporter.class);
-        if (reporterRef != null) {
-            reporter = context.getService(reporterRef);
-            System.out.println("[ClimateSubscriber] Connected to greenhouse reporter.");
-        } else {
-            System.out.println("[ClimateSubscriber] Greenhouse reporter not available.");
+        // The manager keeps this reporter for its lifetime; it forwards to whichever reporter is bound
+        reporterBinding = ServiceBinding.open(context, IGreenhouseReporter.class);
+        reporter = new ForwardingReporter(reporterBinding);
+        
+        climateBinding = ServiceBinding.open(context, TemperatureHumidityService.class, this);
+        if (!climateBinding.isBound()) {
+            System.err.println("[ClimateSubscriber] Climate service not found, waiting for it to be registered");
         }
+    }
+    
+    @Override
+    public void bound(TemperatureHumidityService climateService) {
+        // Create the climate manager with reporter
+        climateManager = new CoolingHeatingManager(climateService, reporter);
         
-        // Get a reference to the climate service
-        serviceReference = context.getServiceReference(TemperatureHumidityService.class);
+        // Start the climate manager
+        climateManager.start();
         
-        if (serviceReference != null) {
-            // Get the service
-            TemperatureHumidityService climateService = context.getService(serviceReference);
-            
-            if (climateService != null) {
-                // Create the climate manager with reporter
-                climateManager = new CoolingHeatingManager(climateService, reporter);
-                
-                // Start the climate manager
-                climateManager.start();
-                
-                System.out.println("[ClimateSubscriber] Successfully connected to Climate Publisher");
-            } else {
-                System.err.println("[ClimateSubscriber] Climate service unavailable");
-            }
-        } else {
-            System.err.println("[ClimateSubscriber] Climate service reference not found");
-        }
+        // Let dashboards and other controllers read live HVAC state
+        hvacStateRegistration = context.registerService(
+            IHVACStateService.class.getName(), 
+            climateManager.getHVACStateService(), 
+            null);
+        
+        System.out.println("[ClimateSubscriber] Successfully connected to Climate Publisher");
     }
     
     @Override
-    public void stop(BundleContext context) throws Exception {
-        System.out.println("[ClimateSubscriber] Stopping service...");
+    public void unbound(TemperatureHumidityService climateService) {
+        // Withdraw the HVAC state service before stopping the manager behind it
+        if (hvacStateRegistration != null) {
+            hvacStateRegistration.unregister();
+            hvacStateRegistration = null;
+        }
         
         // Stop the climate manager
         if (climateManager != null) {
             climateManager.stop();
+            climateManager = null;
         }
         
-        // Unget the services
-        if (serviceReference != null) {
-            context.ungetService(serviceReference);
-        }
+        System.out.println("[ClimateSubscriber] Disconnected from Climate Publisher");
+    }
+    
+    @Override
+    public void stop(BundleContext context) throws Exception {
+        System.out.println("[ClimateSubscriber] Stopping service...");
         
-        if (reporterRef != null) {
-            context.ungetService(reporterRef);
-        }
+        // Closing the bindings stops the manager and releases the services
+        climateBinding.close();
+        reporterBinding.close();
         
         System.out.println("[ClimateSubscriber] Service stopped");
     }
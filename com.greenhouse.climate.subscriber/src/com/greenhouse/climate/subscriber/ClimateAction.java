@@ -0,0 +1,89 @@
+package com.greenhouse.climate.subscriber;
+
+// Compact codes produced by the compiled climate rules, so the control loop never builds text
+final class ClimateAction {
+	// HVAC actuator bits, as kept per zone in the state table
+	static final int HEATING = IHVACStateService.HEATING;
+	static final int COOLING = IHVACStateService.COOLING;
+	static final int HUMIDIFIER = IHVACStateService.HUMIDIFIER;
+	static final int DEHUMIDIFIER = IHVACStateService.DEHUMIDIFIER;
+
+	// Action bits: one "on" and one "off" bit per actuator
+	static final int HEATING_ON = 1;
+	static final int HEATING_OFF = 1 << 1;
+	static final int COOLING_ON = 1 << 2;
+	static final int COOLING_OFF = 1 << 3;
+	static final int HUMIDIFIER_ON = 1 << 4;
+	static final int HUMIDIFIER_OFF = 1 << 5;
+	static final int DEHUMIDIFIER_ON = 1 << 6;
+	static final int DEHUMIDIFIER_OFF = 1 << 7;
+
+	// Status bits: which readings are outside the crop's optimal range
+	static final int STATUS_NORMAL = 0;
+	static final int TEMP_LOW = 1;
+	static final int TEMP_HIGH = 1 << 1;
+	static final int HUMIDITY_LOW = 1 << 2;
+	static final int HUMIDITY_HIGH = 1 << 3;
+
+	// Rendering order and text of each action bit
+	private static final int[] ACTION_BITS = { HEATING_ON, COOLING_OFF, COOLING_ON, HEATING_OFF, HUMIDIFIER_ON,
+			DEHUMIDIFIER_OFF, DEHUMIDIFIER_ON, HUMIDIFIER_OFF };
+	private static final String[] ACTION_TEXT = { "Activating heating system", "Deactivating cooling system",
+			"Activating cooling system", "Deactivating heating system", "Activating humidifier",
+			"Deactivating dehumidifier", "Activating dehumidifier", "Deactivating humidifier" };
+	private static final String[] ACTION_ICONS = { "🔥", "⏸️", "🧊", "⏸️", "💦", "⏸️", "🌵", "⏸️" };
+
+	private ClimateAction() {
+	}
+
+	// Folds a later action code into an earlier one: for each actuator the later on/off decision wins
+	static int mergeActions(int earlier, int later) {
+		for (int pair = HEATING_ON | HEATING_OFF; pair != 0; pair = (pair << 2) & 0xFF) {
+			if ((later & pair) != 0) {
+				earlier = (earlier & ~pair) | (later & pair);
+			}
+		}
+		return earlier;
+	}
+
+	// Human readable list of the actions in a code, e.g. "Activating heating system, Activating humidifier"
+	static String describeActions(int actions) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < ACTION_BITS.length; i++) {
+			if ((actions & ACTION_BITS[i]) != 0) {
+				if (text.length() > 0) {
+					text.append(", ");
+				}
+				text.append(ACTION_TEXT[i]);
+			}
+		}
+		return text.toString();
+	}
+
+	// One console line per actuator change, as printed by the HVAC units
+	static void printActions(String zoneDisplay, int actions) {
+		for (int i = 0; i < ACTION_BITS.length; i++) {
+			if ((actions & ACTION_BITS[i]) != 0) {
+				System.out.println("[HVAC-" + zoneDisplay + "] " + ACTION_ICONS[i] + " " + ACTION_TEXT[i]);
+			}
+		}
+	}
+
+	static String describeStatus(int status) {
+		boolean tempWarning = (status & (TEMP_LOW | TEMP_HIGH)) != 0;
+		boolean humidityWarning = (status & (HUMIDITY_LOW | HUMIDITY_HIGH)) != 0;
+
+		if (tempWarning && humidityWarning) {
+			return "⚠️ TEMP & HUMIDITY ALERT";
+		} else if ((status & TEMP_LOW) != 0) {
+			return "⚠️ LOW TEMPERATURE ALERT";
+		} else if ((status & TEMP_HIGH) != 0) {
+			return "⚠️ HIGH TEMPERATURE ALERT";
+		} else if ((status & HUMIDITY_LOW) != 0) {
+			return "⚠️ LOW HUMIDITY ALERT";
+		} else if ((status & HUMIDITY_HIGH) != 0) {
+			return "⚠️ HIGH HUMIDITY ALERT";
+		}
+		return "✅ NORMAL - OPTIMAL CONDITIONS";
+	}
+}
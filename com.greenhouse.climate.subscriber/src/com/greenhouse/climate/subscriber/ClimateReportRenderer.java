@@ -0,0 +1,259 @@
+package com.greenhouse.climate.subscriber;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+import com.greenhouse.climate.publisher.ClimateSnapshot;
+import com.greenhouse.report.ActionCode;
+import com.greenhouse.report.IGreenhouseReporter;
+
+// Renders climate reports on its own thread. The control loop only hands over the codes of the zones
+// it evaluated; results arriving between two renders are merged, and each render prints only the zones
+// whose status changed or that had actions since the previous one.
+final class ClimateReportRenderer {
+	// Minimum time between two rendered reports, and the most table rows printed per report
+	private static final long REPORT_INTERVAL_MS = Long.getLong("greenhouse.climate.report.intervalMs", 1000);
+	private static final int MAX_ROWS = Integer.getInteger("greenhouse.climate.report.maxRows", 200);
+
+	// Zone results accumulated since the last render, indexed like the climate snapshot
+	private static final class Pending {
+		int[] zones = new int[0];
+		boolean[] listed = new boolean[0];
+		byte[] status = new byte[0];
+		int[] actions = new int[0];
+		int count;
+		long monitored;
+		ClimateSnapshot snapshot;
+		CompiledClimateRules rules;
+
+		void ensureZones(int zoneCount) {
+			if (listed.length != zoneCount) {
+				zones = new int[zoneCount];
+				listed = new boolean[zoneCount];
+				status = new byte[zoneCount];
+				actions = new int[zoneCount];
+				count = 0;
+			}
+		}
+
+		void clear() {
+			for (int i = 0; i < count; i++) {
+				listed[zones[i]] = false;
+				actions[zones[i]] = 0;
+			}
+			count = 0;
+			monitored = 0;
+			snapshot = null;
+			rules = null;
+		}
+	}
+
+	private final IGreenhouseReporter reporter;
+	private final Object lock = new Object();
+	private Pending pending = new Pending();
+	private Pending rendering = new Pending();
+	private Thread renderThread;
+	private volatile boolean running = true;
+
+	// Last status printed for each zone, -1 before a zone was first printed
+	private byte[] renderedStatus = new byte[0];
+	private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+	ClimateReportRenderer(IGreenhouseReporter reporter) {
+		this.reporter = reporter;
+	}
+
+	void start() {
+		renderThread = new Thread(() -> {
+			while (running) {
+				try {
+					synchronized (lock) {
+						while (pending.count == 0) {
+							lock.wait();
+						}
+						Pending ready = pending;
+						pending = rendering;
+						rendering = ready;
+					}
+					render(rendering);
+					rendering.clear();
+
+					// Rate limit: results arriving meanwhile are merged into the next report
+					Thread.sleep(REPORT_INTERVAL_MS);
+				} catch (InterruptedException e) {
+					running = false;
+				} catch (Exception e) {
+					System.err.println("[CoolingHeatingManager] Error rendering climate report: " + e.getMessage());
+				}
+			}
+		}, "climate-report-renderer");
+		renderThread.start();
+	}
+
+	void stop() {
+		running = false;
+		if (renderThread != null) {
+			renderThread.interrupt();
+		}
+	}
+
+	// Called by the control loop after each pass; copies codes only, no formatting
+	void submit(ClimateSnapshot snapshot, CompiledClimateRules rules, int[] evaluatedZones, int evaluated,
+			byte[] zoneStatus, int[] zoneActions) {
+		synchronized (lock) {
+			Pending target = pending;
+			if (target.rules != null && target.rules != rules) {
+				// Zone layout changed; results of the old layout are no longer meaningful
+				target.clear();
+			}
+			target.ensureZones(rules.zoneCount);
+			for (int i = 0; i < evaluated; i++) {
+				int zone = evaluatedZones[i];
+				if (!target.listed[zone]) {
+					target.listed[zone] = true;
+					target.zones[target.count++] = zone;
+				}
+				target.status[zone] = zoneStatus[zone];
+				target.actions[zone] = ClimateAction.mergeActions(target.actions[zone], zoneActions[zone]);
+			}
+			target.monitored += evaluated;
+			target.snapshot = snapshot;
+			target.rules = rules;
+			lock.notify();
+		}
+	}
+
+	private void render(Pending batch) {
+		ClimateSnapshot snapshot = batch.snapshot;
+		CompiledClimateRules rules = batch.rules;
+		if (renderedStatus.length != rules.zoneCount) {
+			renderedStatus = new byte[rules.zoneCount];
+			Arrays.fill(renderedStatus, (byte) -1);
+		}
+
+		// Zones listed in zone order, keeping only those with a status change or an action
+		Arrays.sort(batch.zones, 0, batch.count);
+		int changed = 0;
+		int actionZones = 0;
+		for (int i = 0; i < batch.count; i++) {
+			int zone = batch.zones[i];
+			if (batch.actions[zone] != 0) {
+				actionZones++;
+			}
+			if (batch.actions[zone] != 0 || batch.status[zone] != renderedStatus[zone]) {
+				batch.zones[changed++] = zone;
+			} else {
+				batch.listed[zone] = false;
+			}
+		}
+		// Only the changed zones are cleared after this render
+		batch.count = changed;
+
+		if (changed > 0) {
+			if (actionZones > 0) {
+				System.out.println("\n[CoolingHeatingManager] IMMEDIATE ACTION TAKING - Processing climate control actions:");
+				int printed = 0;
+				for (int i = 0; i < changed && printed < MAX_ROWS; i++) {
+					int zone = batch.zones[i];
+					if (batch.actions[zone] != 0) {
+						ClimateAction.printActions(snapshot.getZoneId(zone) + " (" + rules.cropTypes[zone] + ")",
+								batch.actions[zone]);
+						printed++;
+					}
+				}
+				if (actionZones > printed) {
+					System.out.println("... " + (actionZones - printed) + " more zone(s) with actions");
+				}
+			}
+			System.out.println(buildConsoleReport(batch, actionZones));
+			for (int i = 0; i < changed; i++) {
+				renderedStatus[batch.zones[i]] = batch.status[batch.zones[i]];
+			}
+
+			// Send a consolidated report to the reporter, only when something changed
+			if (reporter != null) {
+				reporter.recordEvent(ActionCode.CLIMATE_SUMMARY, null, buildReporterSummary(batch, actionZones),
+						actionZones);
+			}
+		}
+	}
+
+	private String buildConsoleReport(Pending batch, int actionZones) {
+		ClimateSnapshot snapshot = batch.snapshot;
+		CompiledClimateRules rules = batch.rules;
+		StringBuilder report = new StringBuilder();
+		report.append("=================================================\n");
+		report.append("        Greenhouse Climate Monitoring Report     \n");
+		report.append("=================================================\n");
+		report.append("Timestamp      : ").append(dateFormat.format(new Date())).append("\n");
+		report.append("Zones monitored: ").append(batch.monitored).append(" readings, ").append(batch.count)
+				.append(" zone(s) changed\n");
+		report.append("-------------------------------------------------\n");
+		report.append("Zone | Crop      | Temp (°C) | Humidity (%) | Status \n");
+		report.append("-------------------------------------------------\n");
+
+		// Add data for each changed zone
+		int rows = Math.min(batch.count, MAX_ROWS);
+		for (int i = 0; i < rows; i++) {
+			int zone = batch.zones[i];
+			report.append(String.format("%-5s| %-10s| %-10.1f| %-13.1f| %s\n", snapshot.getZoneId(zone),
+					rules.cropTypes[zone], snapshot.getTemperature(zone), snapshot.getHumidity(zone),
+					ClimateAction.describeStatus(batch.status[zone])));
+		}
+		if (batch.count > rows) {
+			report.append("... ").append(batch.count - rows).append(" more changed zone(s)\n");
+		}
+
+		report.append("=================================================\n");
+
+		// Add required actions section if there are any
+		if (actionZones > 0) {
+			report.append("Processed Actions:\n");
+			report.append("-------------------------------------------------\n");
+			int printed = 0;
+			for (int i = 0; i < batch.count && printed < MAX_ROWS; i++) {
+				int zone = batch.zones[i];
+				if (batch.actions[zone] != 0) {
+					report.append("Zone ").append(snapshot.getZoneId(zone)).append(" (").append(rules.cropTypes[zone])
+							.append("): ").append(ClimateAction.describeActions(batch.actions[zone])).append("\n");
+					printed++;
+				}
+			}
+			if (actionZones > printed) {
+				report.append("... ").append(actionZones - printed).append(" more zone(s) with actions\n");
+			}
+			report.append("=================================================\n");
+		}
+		return report.toString();
+	}
+
+	private String buildReporterSummary(Pending batch, int actionZones) {
+		StringBuilder climateReport = new StringBuilder("Climate monitoring report: ");
+		climateReport.append(batch.monitored).append(" zone readings monitored");
+
+		// Add action summary if there are any
+		if (actionZones > 0) {
+			climateReport.append(", Actions taken: ");
+			int actionCount = 0;
+			for (int i = 0; i < batch.count && actionCount < MAX_ROWS; i++) {
+				int zone = batch.zones[i];
+				if (batch.actions[zone] == 0) {
+					continue;
+				}
+				if (actionCount > 0) {
+					climateReport.append("; ");
+				}
+				climateReport.append(batch.snapshot.getZoneId(zone)).append(" (").append(batch.rules.cropTypes[zone])
+						.append("): ").append(ClimateAction.describeActions(batch.actions[zone]));
+				actionCount++;
+			}
+			if (actionZones > actionCount) {
+				climateReport.append("; ... ").append(actionZones - actionCount).append(" more zone(s)");
+			}
+		} else {
+			climateReport.append(" - All conditions within optimal ranges");
+		}
+		return climateReport.toString();
+	}
+}
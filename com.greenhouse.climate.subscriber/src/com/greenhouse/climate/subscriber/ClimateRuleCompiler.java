@@ -0,0 +1,43 @@
+package com.greenhouse.climate.subscriber;
+
+import com.greenhouse.zoneregistry.CropProfile;
+import com.greenhouse.zoneregistry.ZoneRegistry;
+
+// Turns the crop profiles of the zone registry into flat per-zone threshold arrays,
+// so the control loop works with integer zone ids instead of string lookups.
+final class ClimateRuleCompiler {
+	private final ZoneRegistry registry;
+	private final double tempBuffer;
+	private final double humidityBuffer;
+
+	ClimateRuleCompiler(ZoneRegistry registry, double tempBuffer, double humidityBuffer) {
+		this.registry = registry;
+		this.tempBuffer = tempBuffer;
+		this.humidityBuffer = humidityBuffer;
+	}
+
+	// zoneIds[i] is the zone at index i of the climate snapshot
+	CompiledClimateRules compile(String[] zoneIds) {
+		CompiledClimateRules rules = new CompiledClimateRules(zoneIds.length);
+		for (int zone = 0; zone < zoneIds.length; zone++) {
+			CropProfile crop = registry.getCropProfile(zoneIds[zone]);
+			if (crop == null) {
+				// Zones that are not in the registry are left alone
+				continue;
+			}
+
+			rules.controlled[zone] = true;
+			rules.cropTypes[zone] = crop.getName();
+			int base = zone * CompiledClimateRules.STRIDE;
+			rules.thresholds[base + CompiledClimateRules.TEMP_MIN] = crop.getTempMin();
+			rules.thresholds[base + CompiledClimateRules.TEMP_MAX] = crop.getTempMax();
+			rules.thresholds[base + CompiledClimateRules.TEMP_LOW] = crop.getTempMin() - tempBuffer;
+			rules.thresholds[base + CompiledClimateRules.TEMP_HIGH] = crop.getTempMax() + tempBuffer;
+			rules.thresholds[base + CompiledClimateRules.HUMIDITY_MIN] = crop.getHumidityMin();
+			rules.thresholds[base + CompiledClimateRules.HUMIDITY_MAX] = crop.getHumidityMax();
+			rules.thresholds[base + CompiledClimateRules.HUMIDITY_LOW] = crop.getHumidityMin() - humidityBuffer;
+			rules.thresholds[base + CompiledClimateRules.HUMIDITY_HIGH] = crop.getHumidityMax() + humidityBuffer;
+		}
+		return rules;
+	}
+}
@@ -0,0 +1,105 @@
+package com.greenhouse.climate.subscriber;
+
+import com.greenhouse.climate.publisher.ClimateSnapshot;
+
+// Per-zone climate thresholds flattened into one array indexed by the zone's position in the
+// climate snapshot. The eight thresholds of a zone sit next to each other, so evaluating a zone
+// touches a single cache line. Built once by ClimateRuleCompiler; evaluation allocates nothing.
+final class CompiledClimateRules {
+	static final int TEMP_MIN = 0;
+	static final int TEMP_MAX = 1;
+	static final int TEMP_LOW = 2;
+	static final int TEMP_HIGH = 3;
+	static final int HUMIDITY_MIN = 4;
+	static final int HUMIDITY_MAX = 5;
+	static final int HUMIDITY_LOW = 6;
+	static final int HUMIDITY_HIGH = 7;
+	static final int STRIDE = 8;
+
+	final int zoneCount;
+	final boolean[] controlled;
+	final String[] cropTypes;
+	final double[] thresholds;
+
+	CompiledClimateRules(int zoneCount) {
+		this.zoneCount = zoneCount;
+		controlled = new boolean[zoneCount];
+		cropTypes = new String[zoneCount];
+		thresholds = new double[zoneCount * STRIDE];
+	}
+
+	double threshold(int zone, int which) {
+		return thresholds[zone * STRIDE + which];
+	}
+
+	// Evaluates zones [from, to) that have readings newer than lastProcessed.
+	// Writes the status and action codes of each evaluated zone, updates its HVAC state bits,
+	// appends its index to evaluatedZones and returns how many zones were evaluated.
+	int evaluate(ClimateSnapshot snapshot, int from, int to, long[] lastProcessed, HVACStateTable hvacState,
+			byte[] status, int[] actions, int[] evaluatedZones, int evaluatedOffset) {
+		int evaluated = 0;
+		for (int zone = from; zone < to; zone++) {
+			long timestamp = snapshot.getTimestamp(zone);
+			if (!controlled[zone] || timestamp <= lastProcessed[zone]) {
+				continue;
+			}
+			lastProcessed[zone] = timestamp;
+
+			// Re-evaluate if another shard or an external command changed the zone's word meanwhile
+			int state;
+			int action;
+			do {
+				state = hvacState.get(zone);
+				action = evaluateZone(zone, snapshot.getTemperature(zone), snapshot.getHumidity(zone), state);
+			} while (action != 0 && !hvacState.compareAndSet(zone, state, applyActions(state, action)));
+			actions[zone] = action;
+			status[zone] = (byte) statusOf(zone, snapshot.getTemperature(zone), snapshot.getHumidity(zone));
+			evaluatedZones[evaluatedOffset + evaluated++] = zone;
+		}
+		return evaluated;
+	}
+
+	// Same decisions as the original rule chain, written as independent conditions:
+	// outside the optimal range switches the matching unit on, beyond the buffer also
+	// switches the opposing unit off.
+	int evaluateZone(int zone, double temperature, double humidity, int state) {
+		int base = zone * STRIDE;
+		boolean heating = (state & ClimateAction.HEATING) != 0;
+		boolean cooling = (state & ClimateAction.COOLING) != 0;
+		boolean humidifier = (state & ClimateAction.HUMIDIFIER) != 0;
+		boolean dehumidifier = (state & ClimateAction.DEHUMIDIFIER) != 0;
+
+		int action = 0;
+		action |= (temperature < thresholds[base + TEMP_MIN] && !heating) ? ClimateAction.HEATING_ON : 0;
+		action |= (temperature < thresholds[base + TEMP_LOW] && cooling) ? ClimateAction.COOLING_OFF : 0;
+		action |= (temperature > thresholds[base + TEMP_MAX] && !cooling) ? ClimateAction.COOLING_ON : 0;
+		action |= (temperature > thresholds[base + TEMP_HIGH] && heating) ? ClimateAction.HEATING_OFF : 0;
+		action |= (humidity < thresholds[base + HUMIDITY_MIN] && !humidifier) ? ClimateAction.HUMIDIFIER_ON : 0;
+		action |= (humidity < thresholds[base + HUMIDITY_LOW] && dehumidifier) ? ClimateAction.DEHUMIDIFIER_OFF : 0;
+		action |= (humidity > thresholds[base + HUMIDITY_MAX] && !dehumidifier) ? ClimateAction.DEHUMIDIFIER_ON : 0;
+		action |= (humidity > thresholds[base + HUMIDITY_HIGH] && humidifier) ? ClimateAction.HUMIDIFIER_OFF : 0;
+		return action;
+	}
+
+	static int applyActions(int state, int action) {
+		if ((action & ClimateAction.HEATING_ON) != 0) state |= ClimateAction.HEATING;
+		if ((action & ClimateAction.HEATING_OFF) != 0) state &= ~ClimateAction.HEATING;
+		if ((action & ClimateAction.COOLING_ON) != 0) state |= ClimateAction.COOLING;
+		if ((action & ClimateAction.COOLING_OFF) != 0) state &= ~ClimateAction.COOLING;
+		if ((action & ClimateAction.HUMIDIFIER_ON) != 0) state |= ClimateAction.HUMIDIFIER;
+		if ((action & ClimateAction.HUMIDIFIER_OFF) != 0) state &= ~ClimateAction.HUMIDIFIER;
+		if ((action & ClimateAction.DEHUMIDIFIER_ON) != 0) state |= ClimateAction.DEHUMIDIFIER;
+		if ((action & ClimateAction.DEHUMIDIFIER_OFF) != 0) state &= ~ClimateAction.DEHUMIDIFIER;
+		return state;
+	}
+
+	int statusOf(int zone, double temperature, double humidity) {
+		int base = zone * STRIDE;
+		int status = ClimateAction.STATUS_NORMAL;
+		status |= temperature < thresholds[base + TEMP_MIN] ? ClimateAction.TEMP_LOW : 0;
+		status |= temperature > thresholds[base + TEMP_MAX] ? ClimateAction.TEMP_HIGH : 0;
+		status |= humidity < thresholds[base + HUMIDITY_MIN] ? ClimateAction.HUMIDITY_LOW : 0;
+		status |= humidity > thresholds[base + HUMIDITY_MAX] ? ClimateAction.HUMIDITY_HIGH : 0;
+		return status;
+	}
+}
@@ -0,0 +1,170 @@
+package com.greenhouse.climate.subscriber;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// HVAC state of all zones packed 4 bits per zone, 16 zones per long. Every change is a CAS on the
+// zone's word, so control shards sharing a word and external commands never lose each other's updates.
+final class HVACStateTable implements IHVACStateService {
+	private static final int ZONES_PER_WORD = 16;
+	private static final long LOW_BITS = 0x1111111111111111L;
+
+	// Zone layout and packed words, swapped together when the zone layout changes
+	private static final class Layout {
+		final String[] zoneIds;
+		final Map<String, Integer> zoneIndex;
+		final AtomicLongArray words;
+
+		Layout(String[] zoneIds) {
+			this.zoneIds = zoneIds.clone();
+			zoneIndex = new HashMap<>(zoneIds.length * 2);
+			for (int zone = 0; zone < zoneIds.length; zone++) {
+				zoneIndex.put(zoneIds[zone], zone);
+			}
+			words = new AtomicLongArray((zoneIds.length + ZONES_PER_WORD - 1) / ZONES_PER_WORD);
+		}
+	}
+
+	private volatile Layout layout;
+
+	HVACStateTable(String[] zoneIds) {
+		layout = new Layout(zoneIds);
+	}
+
+	// Start over with a new zone layout, all units off
+	void reset(String[] zoneIds) {
+		layout = new Layout(zoneIds);
+	}
+
+	// Only for the control loop, which always addresses zones of the current layout
+	int get(int zone) {
+		return (int) (layout.words.get(zone >>> 4) >>> ((zone & 15) << 2)) & ALL_UNITS;
+	}
+
+	boolean compareAndSet(int zone, int expect, int update) {
+		AtomicLongArray words = layout.words;
+		int word = zone >>> 4;
+		int shift = (zone & 15) << 2;
+		long current = words.get(word);
+		while ((int) (current >>> shift & ALL_UNITS) == expect) {
+			long next = (current & ~((long) ALL_UNITS << shift)) | ((long) (update & ALL_UNITS) << shift);
+			if (words.compareAndSet(word, current, next)) {
+				return true;
+			}
+			current = words.get(word);
+		}
+		return false;
+	}
+
+	@Override
+	public int getZoneCount() {
+		return layout.zoneIds.length;
+	}
+
+	@Override
+	public String getZoneId(int zone) {
+		return layout.zoneIds[zone];
+	}
+
+	@Override
+	public int indexOf(String zoneId) {
+		Integer zone = layout.zoneIndex.get(zoneId);
+		return zone == null ? -1 : zone;
+	}
+
+	@Override
+	public int getState(int zone) {
+		Layout current = layout;
+		if (zone < 0 || zone >= current.zoneIds.length) {
+			return -1;
+		}
+		return (int) (current.words.get(zone >>> 4) >>> ((zone & 15) << 2)) & ALL_UNITS;
+	}
+
+	@Override
+	public int getState(String zoneId) {
+		Layout current = layout;
+		Integer zone = current.zoneIndex.get(zoneId);
+		if (zone == null) {
+			return -1;
+		}
+		return (int) (current.words.get(zone >>> 4) >>> ((zone & 15) << 2)) & ALL_UNITS;
+	}
+
+	@Override
+	public int[] findZones(int units) {
+		Layout current = layout;
+		int[] found = new int[count(current, units)];
+		int next = 0;
+		for (int word = 0; word < current.words.length() && next < found.length; word++) {
+			long matches = matches(current.words.get(word), units);
+			while (matches != 0 && next < found.length) {
+				found[next++] = word * ZONES_PER_WORD + (Long.numberOfTrailingZeros(matches) >>> 2);
+				matches &= matches - 1;
+			}
+		}
+		// The table may have changed between counting and collecting
+		return next == found.length ? found : Arrays.copyOf(found, next);
+	}
+
+	@Override
+	public String[] findZoneIds(int units) {
+		Layout current = layout;
+		int[] zones = findZones(units);
+		String[] ids = new String[zones.length];
+		for (int i = 0; i < zones.length; i++) {
+			ids[i] = current.zoneIds[zones[i]];
+		}
+		return ids;
+	}
+
+	@Override
+	public int countZones(int units) {
+		return count(layout, units);
+	}
+
+	@Override
+	public boolean setUnits(String zoneId, int units, boolean on) {
+		checkUnits(units);
+		Layout current = layout;
+		Integer zone = current.zoneIndex.get(zoneId);
+		if (zone == null) {
+			return false;
+		}
+		int shift = (zone & 15) << 2;
+		long mask = (long) units << shift;
+		long word;
+		do {
+			word = current.words.get(zone >>> 4);
+		} while (!current.words.compareAndSet(zone >>> 4, word, on ? word | mask : word & ~mask));
+		return true;
+	}
+
+	private static int count(Layout current, int units) {
+		checkUnits(units);
+		int total = 0;
+		for (int word = 0; word < current.words.length(); word++) {
+			total += Long.bitCount(matches(current.words.get(word), units));
+		}
+		return total;
+	}
+
+	// One bit, at the lowest bit of each zone's nibble, for every zone in the word with all units on
+	private static long matches(long word, int units) {
+		long matches = LOW_BITS;
+		for (int bit = 0; bit < 4; bit++) {
+			if ((units & (1 << bit)) != 0) {
+				matches &= word >>> bit;
+			}
+		}
+		return matches & LOW_BITS;
+	}
+
+	private static void checkUnits(int units) {
+		if (units == 0 || (units & ~ALL_UNITS) != 0) {
+			throw new IllegalArgumentException("Unknown HVAC unit bits: " + units);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.greenhouse.climate.subscriber;
+
+// Live HVAC actuator state of every climate zone, readable by dashboards and other controllers
+// without locks. Zone indexes follow the climate publisher's snapshot.
+public interface IHVACStateService {
+	// Actuator bits of a zone's state
+	int HEATING = 1;
+	int COOLING = 1 << 1;
+	int HUMIDIFIER = 1 << 2;
+	int DEHUMIDIFIER = 1 << 3;
+	int ALL_UNITS = HEATING | COOLING | HUMIDIFIER | DEHUMIDIFIER;
+
+	// Number of zones in the table
+	int getZoneCount();
+
+	// Zone ID at an index, or the index of a zone ID (-1 when unknown)
+	String getZoneId(int zone);
+
+	int indexOf(String zoneId);
+
+	// Actuator bits currently on for a zone, or -1 for an unknown zone ID
+	int getState(int zone);
+
+	int getState(String zoneId);
+
+	// Indexes of the zones that have all of the given units on, found in one scan of the table
+	int[] findZones(int units);
+
+	// Zone IDs of the zones that have all of the given units on
+	String[] findZoneIds(int units);
+
+	// Number of zones that have all of the given units on
+	int countZones(int units);
+
+	// Switch units on or off for a zone; returns false for an unknown zone ID
+	boolean setUnits(String zoneId, int units, boolean on);
+}
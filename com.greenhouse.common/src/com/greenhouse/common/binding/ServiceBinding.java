@@ -0,0 +1,166 @@
+package com.greenhouse.common.binding;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.util.tracker.ServiceTracker;
+import org.osgi.util.tracker.ServiceTrackerCustomizer;
+
+/**
+ * Cached binding to one OSGi service, kept up to date by a {@link ServiceTracker}.
+ * <p>
+ * {@link #get()} is a single volatile read, so consumers can call it on every use instead of
+ * looking the service up in the registry or holding on to an instance that may have gone away.
+ * When the bound provider is unregistered the binding moves to the best remaining provider, or
+ * becomes unbound until a new one is registered. The service object is released again when its
+ * provider goes away or the binding is closed.
+ * <p>
+ * A {@link Listener} hears about every change of the bound instance, so consumers that keep
+ * per-provider state (registered listeners, worker threads) can rebuild it on provider restart.
+ * Listeners run while the binding's lock is held and should not block for long.
+ */
+public final class ServiceBinding<S> implements Supplier<S> {
+    /**
+     * Notified when the binding takes up or drops a service instance
+     */
+    public interface Listener<S> {
+        void bound(S service);
+
+        void unbound(S service);
+    }
+
+    private final BundleContext context;
+    private final Class<S> type;
+    private final Listener<S> listener;
+    private final ServiceTracker<S, S> tracker;
+    private final Map<ServiceReference<S>, S> available = new LinkedHashMap<>();
+    private ServiceReference<S> boundReference;
+    private volatile S service;
+
+    private ServiceBinding(BundleContext context, Class<S> type, Listener<S> listener) {
+        this.context = context;
+        this.type = type;
+        this.listener = listener;
+        this.tracker = new ServiceTracker<>(context, type, new Tracking());
+    }
+
+    /**
+     * Starts tracking providers of the given service type
+     */
+    public static <S> ServiceBinding<S> open(BundleContext context, Class<S> type) {
+        return open(context, type, null);
+    }
+
+    /**
+     * Starts tracking providers of the given service type; the listener is called for the
+     * provider already registered, if any, before this method returns
+     */
+    public static <S> ServiceBinding<S> open(BundleContext context, Class<S> type, Listener<S> listener) {
+        ServiceBinding<S> binding = new ServiceBinding<>(context, type, listener);
+        binding.tracker.open();
+        return binding;
+    }
+
+    /**
+     * The bound service, or null while no provider is registered
+     */
+    @Override
+    public S get() {
+        return service;
+    }
+
+    public boolean isBound() {
+        return service != null;
+    }
+
+    /**
+     * Waits up to timeoutMillis for a provider; returns the bound service or null on timeout
+     */
+    public synchronized S await(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (service == null) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return null;
+            }
+            wait(remaining);
+        }
+        return service;
+    }
+
+    /**
+     * Stops tracking; the bound service, if any, is unbound and released
+     */
+    public void close() {
+        tracker.close();
+    }
+
+    @Override
+    public String toString() {
+        return type.getSimpleName() + (service != null ? " (bound)" : " (unbound)");
+    }
+
+    private synchronized S add(ServiceReference<S> reference) {
+        S added = context.getService(reference);
+        if (added == null) {
+            return null;
+        }
+        available.put(reference, added);
+        if (service == null) {
+            bind(reference, added);
+        }
+        return added;
+    }
+
+    private synchronized void remove(ServiceReference<S> reference) {
+        available.remove(reference);
+        if (reference.equals(boundReference)) {
+            S previous = service;
+            service = null;
+            boundReference = null;
+            if (listener != null) {
+                listener.unbound(previous);
+            }
+            // Move to the best provider left; ServiceReference ordering follows service ranking
+            ServiceReference<S> best = null;
+            for (ServiceReference<S> candidate : available.keySet()) {
+                if (best == null || candidate.compareTo(best) > 0) {
+                    best = candidate;
+                }
+            }
+            if (best != null) {
+                bind(best, available.get(best));
+            }
+        }
+        context.ungetService(reference);
+    }
+
+    private void bind(ServiceReference<S> reference, S added) {
+        boundReference = reference;
+        service = added;
+        notifyAll();
+        if (listener != null) {
+            listener.bound(added);
+        }
+    }
+
+    private final class Tracking implements ServiceTrackerCustomizer<S, S> {
+        @Override
+        public S addingService(ServiceReference<S> reference) {
+            return add(reference);
+        }
+
+        @Override
+        public void modifiedService(ServiceReference<S> reference, S tracked) {
+            // Properties are not used for binding
+        }
+
+        @Override
+        public void removedService(ServiceReference<S> reference, S tracked) {
+            remove(reference);
+        }
+    }
+}
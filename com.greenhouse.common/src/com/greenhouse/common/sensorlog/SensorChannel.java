@@ -0,0 +1,19 @@
+package com.greenhouse.common.sensorlog;
+
+/**
+ * Channel identifiers stored with every recorded reading
+ */
+public final class SensorChannel {
+    /** Marks the end of one producer update cycle; the zone and value are unused */
+    public static final int TICK = 0;
+    public static final int TEMPERATURE = 1;
+    public static final int HUMIDITY = 2;
+    public static final int SOIL_MOISTURE = 3;
+    public static final int LIGHT_INTENSITY = 4;
+    public static final int PEST_CAMERA = 5;
+    public static final int PEST_TYPE = 6;
+    public static final int PEST_CONFIDENCE = 7;
+
+    private SensorChannel() {
+    }
+}
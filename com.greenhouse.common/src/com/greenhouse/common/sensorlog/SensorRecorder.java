@@ -0,0 +1,68 @@
+package com.greenhouse.common.sensorlog;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Appends sensor readings to a compact binary file so a run can be replayed later.
+ *
+ * File layout: int magic, short version, UTF source name, then fixed 21-byte records of
+ * long timestamp, int zone, byte channel, double value. Each producer update cycle ends
+ * with a {@link SensorChannel#TICK} record.
+ */
+public class SensorRecorder implements Closeable {
+    static final int MAGIC = 0x47485352; // "GHSR"
+    static final short VERSION = 1;
+
+    private final DataOutputStream out;
+    private final Path file;
+    private long recordCount;
+
+    public SensorRecorder(Path file, String source) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 65536));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeUTF(source);
+    }
+
+    /**
+     * Records one reading of the current update cycle
+     */
+    public synchronized void record(long timestamp, int zone, int channel, double value) throws IOException {
+        out.writeLong(timestamp);
+        out.writeInt(zone);
+        out.writeByte(channel);
+        out.writeDouble(value);
+        recordCount++;
+    }
+
+    /**
+     * Closes the current update cycle and flushes it to disk
+     */
+    public synchronized void endTick(long timestamp) throws IOException {
+        record(timestamp, 0, SensorChannel.TICK, 0);
+        out.flush();
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
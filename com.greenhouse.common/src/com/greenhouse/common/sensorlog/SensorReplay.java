@@ -0,0 +1,87 @@
+package com.greenhouse.common.sensorlog;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads a file written by {@link SensorRecorder} and feeds it back to a producer,
+ * keeping the recorded spacing between update cycles divided by the replay speed.
+ */
+public class SensorReplay {
+
+    /**
+     * Receives the replayed stream. Readings of a cycle arrive before the tick that closes it,
+     * so producers should stage them and only make them visible in {@link #tick(long)}.
+     */
+    public interface Handler {
+        void reading(long timestamp, int zone, int channel, double value);
+
+        void tick(long timestamp);
+    }
+
+    private final Path file;
+    private final double speed;
+
+    /**
+     * @param file Recording to replay
+     * @param speed 1 for real time, 100 for 100x, 0 or less for as fast as possible
+     */
+    public SensorReplay(Path file, double speed) {
+        this.file = file;
+        this.speed = speed;
+    }
+
+    /**
+     * Replays the whole file on the calling thread
+     * @return Number of update cycles replayed
+     */
+    public long run(Handler handler) throws IOException, InterruptedException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 65536))) {
+            if (in.readInt() != SensorRecorder.MAGIC || in.readShort() != SensorRecorder.VERSION) {
+                throw new IOException("Not a sensor recording: " + file);
+            }
+            in.readUTF(); // source name, informational only
+
+            long ticks = 0;
+            long firstTick = Long.MIN_VALUE;
+            long startNanos = 0;
+            while (true) {
+                long timestamp;
+                try {
+                    timestamp = in.readLong();
+                } catch (EOFException e) {
+                    return ticks;
+                }
+                int zone = in.readInt();
+                int channel = in.readByte();
+                double value = in.readDouble();
+
+                if (channel != SensorChannel.TICK) {
+                    handler.reading(timestamp, zone, channel, value);
+                    continue;
+                }
+
+                // Hold the cycle back until its scaled offset from the first cycle has passed
+                if (firstTick == Long.MIN_VALUE) {
+                    firstTick = timestamp;
+                    startNanos = System.nanoTime();
+                } else if (speed > 0) {
+                    long dueNanos = startNanos + (long) ((timestamp - firstTick) * 1_000_000L / speed);
+                    long waitMillis = (dueNanos - System.nanoTime()) / 1_000_000L;
+                    if (waitMillis > 0) {
+                        Thread.sleep(waitMillis);
+                    }
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                handler.tick(timestamp);
+                ticks++;
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.greenhouse.common.sensorlog;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Record/replay settings for one sensor producer, read from system properties:
+ * <ul>
+ * <li>greenhouse.sensor.mode (or greenhouse.sensor.&lt;source&gt;.mode): live, record or replay</li>
+ * <li>greenhouse.sensor.dir / greenhouse.sensor.&lt;source&gt;.file: where recordings live</li>
+ * <li>greenhouse.sensor.speed: replay speed, 1 = real time, 0 = as fast as possible</li>
+ * <li>greenhouse.sensor.seed: seed for the simulated readings so live runs repeat</li>
+ * <li>greenhouse.sensor.intervalMs: time between simulated update cycles</li>
+ * </ul>
+ */
+public class SensorStreamConfig {
+    public enum Mode {
+        LIVE, RECORD, REPLAY
+    }
+
+    private final String source;
+    private final Mode mode;
+    private final Path file;
+    private final double speed;
+    private final Long seed;
+    private final long intervalMillis;
+
+    private SensorStreamConfig(String source) {
+        this.source = source;
+        String modeProperty = System.getProperty("greenhouse.sensor." + source + ".mode") != null
+                ? "greenhouse.sensor." + source + ".mode" : "greenhouse.sensor.mode";
+        this.mode = parseMode(modeProperty, System.getProperty(modeProperty, "live"));
+        String dir = System.getProperty("greenhouse.sensor.dir", "sensor-recordings");
+        this.file = Paths.get(System.getProperty("greenhouse.sensor." + source + ".file",
+                Paths.get(dir, source + ".bin").toString()));
+        this.speed = parseSpeed(System.getProperty("greenhouse.sensor.speed", "1"));
+        this.seed = Long.getLong("greenhouse.sensor.seed");
+        this.intervalMillis = Long.getLong("greenhouse.sensor.intervalMs", 30000);
+    }
+
+    // Every producer builds its config while it is constructed, so a typo must say which setting is wrong
+    private static Mode parseMode(String property, String value) {
+        try {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(property + " must be live, record or replay, not \"" + value + "\"");
+        }
+    }
+
+    private static double parseSpeed(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("greenhouse.sensor.speed must be a number, not \"" + value + "\"");
+        }
+    }
+
+    /**
+     * Reads the settings for a producer, e.g. "climate" or "soil"
+     */
+    public static SensorStreamConfig forSource(String source) {
+        return new SensorStreamConfig(source);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Random source for simulated readings; seeded per producer when a seed is configured
+     */
+    public Random newRandom() {
+        return seed != null ? new Random(seed ^ source.hashCode()) : new Random();
+    }
+
+    public SensorRecorder openRecorder() throws IOException {
+        return new SensorRecorder(file, source);
+    }
+
+    public SensorReplay openReplay() {
+        return new SensorReplay(file, speed);
+    }
+
+    @Override
+    public String toString() {
+        switch (mode) {
+        case RECORD:
+            return "recording to " + file;
+        case REPLAY:
+            return "replaying " + file + (speed > 0 ? " at " + speed + "x" : " as fast as possible");
+        default:
+            return "live";
+        }
+    }
+}
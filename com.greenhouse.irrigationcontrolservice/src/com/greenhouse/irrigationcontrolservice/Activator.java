@@ -1,58 +1,99 @@
 package com.greenhouse.irrigationcontrolservice;
-import com.greenhouse.soilmoistureservice.SoilMoistureProducer;
+import com.greenhouse.climate.publisher.TemperatureHumidityService;
+import com.greenhouse.common.binding.ServiceBinding;
+import com.greenhouse.light.servicepublisher.ILightIntensityService;
+import com.greenhouse.soilmoistureservice.ISoilMoistureService;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
-import org.osgi.framework.ServiceReference;
+import com.greenhouse.report.ForwardingReporter;
 import com.greenhouse.report.IGreenhouseReporter;
 
 public class Activator implements BundleActivator {
     private IrrigationController irrigationController;
-    private ServiceReference<IGreenhouseReporter> reporterRef;
-    private ServiceReference<?> soilMoistureRef;
+    private IGreenhouseReporter reporter;
+    private ServiceBinding<IGreenhouseReporter> reporterBinding;
+    private ServiceBinding<ISoilMoistureService> soilMoistureBinding;
+    private ServiceBinding<TemperatureHumidityService> climateBinding;
+    private ServiceBinding<ILightIntensityService> lightBinding;
+    // Set once every binding is open; provider changes before that are covered by the first start
+    private volatile boolean active;
     
     @Override
     public void start(BundleContext context) throws Exception {
         System.out.println("[IrrigationActivator] Starting IrrigationControl bundle...");
         
-        // First, try to get the reporter service
-        reporterRef = context.getServiceReference(IGreenhouseReporter.class);
-        IGreenhouseReporter reporter = null;
-        if (reporterRef != null) {
-            reporter = context.getService(reporterRef);
-            System.out.println("[IrrigationActivator] Connected to greenhouse reporter.");
-        } else {
-            System.out.println("[IrrigationActivator] Greenhouse reporter not available.");
+        reporterBinding = ServiceBinding.open(context, IGreenhouseReporter.class);
+        reporter = new ForwardingReporter(reporterBinding);
+        
+        // Climate and light feed the drying-rate estimate; irrigation still works without them
+        climateBinding = ServiceBinding.open(context, TemperatureHumidityService.class, listener());
+        if (!climateBinding.isBound()) {
+            System.out.println("[IrrigationActivator] Climate service not available, drying rate not estimated.");
+        }
+        lightBinding = ServiceBinding.open(context, ILightIntensityService.class, listener());
+        if (!lightBinding.isBound()) {
+            System.out.println("[IrrigationActivator] Light service not available, assuming default light.");
         }
         
-        // Retrieve the SoilMoistureProducer service by its concrete class name.
-        soilMoistureRef = context.getServiceReference(SoilMoistureProducer.class.getName());
-        if (soilMoistureRef != null) {
-            SoilMoistureProducer producer = (SoilMoistureProducer) context.getService(soilMoistureRef);
-            irrigationController = new IrrigationController(producer, reporter);
-            irrigationController.startIrrigationCheck();
-        } else {
-            System.err.println("[IrrigationActivator] ERROR: SoilMoistureProducer service not available!");
+        // The soil moisture service is required; the controller runs while it is bound
+        soilMoistureBinding = ServiceBinding.open(context, ISoilMoistureService.class, listener());
+        if (!soilMoistureBinding.isBound()) {
+            System.err.println("[IrrigationActivator] ERROR: Soil moisture service not available!");
         }
+        active = true;
+        restartController();
     }
     
-    @Override
-    public void stop(BundleContext context) throws Exception {
-        System.out.println("[IrrigationActivator] Stopping IrrigationControl bundle...");
-        
+    // Rebuilds the controller against the current providers whenever one of them comes or goes
+    private <S> ServiceBinding.Listener<S> listener() {
+        return new ServiceBinding.Listener<S>() {
+            @Override
+            public void bound(S service) {
+                restartController();
+            }
+            
+            @Override
+            public void unbound(S service) {
+                restartController();
+            }
+        };
+    }
+    
+    private synchronized void restartController() {
+        if (!active) {
+            return;
+        }
         if (irrigationController != null) {
             irrigationController.stopIrrigationCheck();
             irrigationController = null;
         }
-        
-        // Unget the services
-        if (soilMoistureRef != null) {
-            context.ungetService(soilMoistureRef);
+        ISoilMoistureService soilMoistureService = soilMoistureBinding.get();
+        if (soilMoistureService == null) {
+            return;
         }
+        irrigationController = new IrrigationController(soilMoistureService, reporter, climateBinding.get(),
+            lightBinding.get());
+        irrigationController.startIrrigationCheck();
+    }
+    
+    @Override
+    public void stop(BundleContext context) throws Exception {
+        System.out.println("[IrrigationActivator] Stopping IrrigationControl bundle...");
         
-        if (reporterRef != null) {
-            context.ungetService(reporterRef);
+        synchronized (this) {
+            active = false;
+            if (irrigationController != null) {
+                irrigationController.stopIrrigationCheck();
+                irrigationController = null;
+            }
         }
         
+        // Releases the services
+        soilMoistureBinding.close();
+        climateBinding.close();
+        lightBinding.close();
+        reporterBinding.close();
+        
         System.out.println("[IrrigationActivator] Irrigation control bundle stopped.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.greenhouse.irrigationcontrolservice;
+
+import java.util.Arrays;
+
+// Per-zone estimate of how fast the soil dries, in moisture percentage points per hour.
+// Every climate or light reading updates its zone in O(1): the instantaneous rate from a simplified
+// evapotranspiration formula (light, vapour pressure deficit, crop coefficient) is folded into an
+// exponentially weighted average. Only used on the controller's scheduler thread.
+final class EvapotranspirationModel {
+    // Weights of the drying-rate formula, in moisture points per hour, and the smoothing factor
+    private static final double BASE_RATE = 0.1;
+    private static final double RADIATION_RATE = 0.8;   // at 1000 lux
+    private static final double VPD_RATE = 0.5;         // per kPa of vapour pressure deficit
+    private static final double SMOOTHING = 0.2;
+    private static final int DEFAULT_LIGHT = 500;        // lux, until the first light reading
+
+    private double[] cropCoefficient = new double[0];
+    private double[] temperature = new double[0];
+    private double[] humidity = new double[0];
+    private int[] light = new int[0];
+    private boolean[] hasClimate = new boolean[0];
+    private double[] ratePerHour = new double[0];
+
+    // Start over for a new zone layout; zones are the controller's zone indexes
+    void reset(double[] cropCoefficients) {
+        int zoneCount = cropCoefficients.length;
+        cropCoefficient = cropCoefficients.clone();
+        temperature = new double[zoneCount];
+        humidity = new double[zoneCount];
+        light = new int[zoneCount];
+        Arrays.fill(light, DEFAULT_LIGHT);
+        hasClimate = new boolean[zoneCount];
+        ratePerHour = new double[zoneCount];
+        Arrays.fill(ratePerHour, Double.NaN);
+    }
+
+    void updateClimate(int zone, double temperature, double humidity) {
+        this.temperature[zone] = temperature;
+        this.humidity[zone] = humidity;
+        hasClimate[zone] = true;
+        update(zone);
+    }
+
+    void updateLight(int zone, int lux) {
+        light[zone] = lux;
+        if (hasClimate[zone]) {
+            update(zone);
+        }
+    }
+
+    // Smoothed drying rate of a zone, or NaN before its first climate reading
+    double getRatePerHour(int zone) {
+        return zone < ratePerHour.length ? ratePerHour[zone] : Double.NaN;
+    }
+
+    // Milliseconds until a zone loses the given moisture margin, or -1 without an estimate
+    long predictMillisToLose(int zone, double margin) {
+        double rate = zone < ratePerHour.length ? ratePerHour[zone] : Double.NaN;
+        if (Double.isNaN(rate) || rate <= 0) {
+            return -1;
+        }
+        return (long) (Math.max(0, margin) / rate * 3_600_000);
+    }
+
+    private void update(int zone) {
+        double t = temperature[zone];
+        // Saturation vapour pressure (Tetens, kPa) and the deficit at the current humidity
+        double saturation = 0.6108 * Math.exp(17.27 * t / (t + 237.3));
+        double deficit = Math.max(0, saturation * (1 - humidity[zone] / 100.0));
+        double rate = cropCoefficient[zone]
+                * (BASE_RATE + RADIATION_RATE * light[zone] / 1000.0 + VPD_RATE * deficit);
+        ratePerHour[zone] = Double.isNaN(ratePerHour[zone]) ? rate
+                : ratePerHour[zone] + SMOOTHING * (rate - ratePerHour[zone]);
+    }
+}
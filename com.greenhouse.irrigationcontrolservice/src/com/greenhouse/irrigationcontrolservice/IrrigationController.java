@@ -1,15 +1,25 @@
 package com.greenhouse.irrigationcontrolservice;
-import java.util.Map;
 import java.util.concurrent.*;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.greenhouse.soilmoistureservice.SoilMoistureProducer;
+import com.greenhouse.climate.publisher.ClimateDataListener;
+import com.greenhouse.climate.publisher.ClimateSnapshot;
+import com.greenhouse.climate.publisher.TemperatureHumidityService;
+import com.greenhouse.light.servicepublisher.ILightIntensityService;
+import com.greenhouse.soilmoistureservice.ISoilMoistureService;
+import com.greenhouse.soilmoistureservice.SoilMoistureSnapshot;
+import com.greenhouse.report.ActionCode;
 import com.greenhouse.report.IGreenhouseReporter;
+import com.greenhouse.zoneregistry.CropProfile;
+import com.greenhouse.zoneregistry.ZoneRegistry;
 
 public class IrrigationController {
-    private final SoilMoistureProducer producer;
+    private final ISoilMoistureService soilMoistureService;
     private final IGreenhouseReporter reporter;
+    // Optional feeds for the drying-rate estimate; without them zones are paced by their moisture trend
+    private final TemperatureHumidityService climateService;
+    private final ILightIntensityService lightService;
     
     // Use a ScheduledExecutorService with daemon threads so it runs in the background.
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1, r -> {
@@ -18,87 +28,270 @@ public class IrrigationController {
         return t;
     });
     
-    // Define thresholds for each crop type.
-    private static final Map<String, Double> PLANT_MOISTURE_THRESHOLDS = Map.of(
-        "Tomatoes", 45.00,
-        "Cucumbers", 50.00,
-        "Peppers", 40.00,
-        "Lettuce", 55.00,
-        "Herbs", 35.00
-    );
-    
-    // Map zones to crops.
-    private static final Map<String, String> GREENHOUSE_ZONES = Map.of(
-        "Zone-A", "Tomatoes",
-        "Zone-B", "Cucumbers",
-        "Zone-C", "Peppers",
-        "Zone-D", "Lettuce",
-        "Zone-E", "Herbs"
-    );
-    
-    public IrrigationController(SoilMoistureProducer producer, IGreenhouseReporter reporter) {
-        this.producer = producer;
+    // Scheduler resolution and the bounds of a zone's check interval
+    private static final long TICK_MILLIS = Long.getLong("greenhouse.irrigation.tickMs", 100);
+    private static final long MIN_CHECK_MILLIS = Long.getLong("greenhouse.irrigation.minCheckMs", 5000);
+    private static final long MAX_CHECK_MILLIS = Long.getLong("greenhouse.irrigation.maxCheckMs", 300000);
+    // Zones predicted to cross their threshold within this time are irrigated now rather than late
+    private static final long LEAD_MILLIS = Long.getLong("greenhouse.irrigation.leadMs", 10 * 60 * 1000);
+    private static final long LIGHT_POLL_MILLIS = Long.getLong("greenhouse.irrigation.lightPollMs", 30000);
+    
+    // Zone to crop assignments and each crop's moisture threshold, check interval and crop coefficient
+    private static final ZoneRegistry ZONES = ZoneRegistry.getDefault();
+    
+    // Runs the dry zones on the available pumps, shortest runs first with ageing
+    private final IrrigationDispatcher dispatcher;
+    
+    // Drying rate per zone, fed by climate pushes and light polls
+    private final EvapotranspirationModel evapotranspiration = new EvapotranspirationModel();
+    // The push only hands over the latest snapshot; the scheduler thread folds it into the model
+    private volatile ClimateSnapshot latestClimate;
+    private final ClimateDataListener climateListener = changedZones -> climateChanged();
+    private ClimateSnapshot foldedClimate;
+    // Climate snapshot index of each zone (-1 when the climate service has no such zone), per layout
+    private int[] climateZone = new int[0];
+    private int climateZoneCount = -1;
+    private long lastLightPoll;
+    private int[] lightReadings = new int[0];
+    // Controller zone of each light service zone (-1 when it has none), per layout
+    private int[] lightZone = new int[0];
+    
+    // Per-zone settings and trend state, indexed like the moisture snapshot; only used on the scheduler thread
+    private TimerWheel wheel;
+    private String[] zoneIds = new String[0];
+    private String[] plantTypes;
+    private double[] requiredMoisture;
+    private long[] checkInterval;
+    private double[] lastMoisture;
+    private long[] lastCheckTime;
+    private int[] dueZones;
+    private int dueCount;
+    
+    public IrrigationController(ISoilMoistureService soilMoistureService, IGreenhouseReporter reporter) {
+        this(soilMoistureService, reporter, null, null);
+    }
+    
+    public IrrigationController(ISoilMoistureService soilMoistureService, IGreenhouseReporter reporter,
+            TemperatureHumidityService climateService, ILightIntensityService lightService) {
+        this.soilMoistureService = soilMoistureService;
         this.reporter = reporter;
+        this.climateService = climateService;
+        this.lightService = lightService;
+        this.dispatcher = new IrrigationDispatcher(reporter);
+    }
+    
+    // Check every zone now, regardless of its schedule
+    public synchronized void checkAndIrrigate() {
+        long now = System.currentTimeMillis();
+        SoilMoistureSnapshot moistureData = soilMoistureService.getSnapshot();
+        prepareZones(moistureData, now);
+        foldClimate();
+        dueCount = 0;
+        for (int zone = 0; zone < zoneIds.length; zone++) {
+            wheel.cancel(zone);
+            dueZones[dueCount++] = zone;
+        }
+        checkDueZones(moistureData, now);
+        dispatcher.dispatch(now);
+    }
+    
+    // Runs every tick: only the zones whose next check is due are looked at
+    private synchronized void checkScheduledZones() {
+        try {
+            long now = System.currentTimeMillis();
+            SoilMoistureSnapshot moistureData = soilMoistureService.getSnapshot();
+            prepareZones(moistureData, now);
+            foldClimate();
+            pollLight(moistureData, now);
+            dueCount = 0;
+            wheel.advance(now, zone -> dueZones[dueCount++] = zone);
+            if (dueCount > 0) {
+                checkDueZones(moistureData, now);
+            }
+            dispatcher.dispatch(now);
+        } catch (Exception e) {
+            System.err.println("[IrrigationController] Error checking irrigation zones: " + e.getMessage());
+        }
+    }
+    
+    private void climateChanged() {
+        latestClimate = climateService.getSnapshot();
+    }
+    
+    // Feeds the newest climate snapshot, if any arrived since the last tick, into the drying-rate model
+    private void foldClimate() {
+        ClimateSnapshot climate = latestClimate;
+        if (climate == null || climate == foldedClimate) {
+            return;
+        }
+        foldedClimate = climate;
+        if (climate.getZoneCount() != climateZoneCount) {
+            // Zone names are matched once per layout; readings are then read by index
+            climateZoneCount = climate.getZoneCount();
+            for (int zone = 0; zone < zoneIds.length; zone++) {
+                climateZone[zone] = climate.indexOf(zoneIds[zone]);
+            }
+        }
+        for (int zone = 0; zone < zoneIds.length; zone++) {
+            int index = climateZone[zone];
+            if (index >= 0) {
+                evapotranspiration.updateClimate(zone, climate.getTemperature(index), climate.getHumidity(index));
+            }
+        }
+    }
+    
+    // The light service has no push interface, so it is polled at about its update rate
+    private void pollLight(SoilMoistureSnapshot moistureData, long now) {
+        if (lightService == null || now - lastLightPoll < LIGHT_POLL_MILLIS) {
+            return;
+        }
+        lastLightPoll = now;
+        int zoneCount = lightService.getZoneCount();
+        if (lightReadings.length != zoneCount) {
+            // Zone names are matched once per layout; readings are then folded in by index
+            lightReadings = new int[zoneCount];
+            lightZone = new int[zoneCount];
+            for (int index = 0; index < zoneCount; index++) {
+                lightZone[index] = moistureData.indexOf(lightService.getZoneId(index));
+            }
+        }
+        lightService.readLightIntensity(lightReadings);
+        for (int index = 0; index < zoneCount; index++) {
+            int zone = lightZone[index];
+            if (zone >= 0) {
+                evapotranspiration.updateLight(zone, lightReadings[index]);
+            }
+        }
     }
     
-    public void checkAndIrrigate() {
-        Map<String, Double> moistureData = producer.getSoilMoistureLevels();
+    // (Re)build the per-zone settings when the moisture service's zone layout changes
+    private void prepareZones(SoilMoistureSnapshot moistureData, long now) {
+        int zoneCount = moistureData.getZoneCount();
+        if (wheel != null && zoneCount == zoneIds.length) {
+            return;
+        }
+        wheel = new TimerWheel(TICK_MILLIS, now);
+        zoneIds = new String[zoneCount];
+        plantTypes = new String[zoneCount];
+        requiredMoisture = new double[zoneCount];
+        checkInterval = new long[zoneCount];
+        lastMoisture = new double[zoneCount];
+        lastCheckTime = new long[zoneCount];
+        dueZones = new int[zoneCount];
+        climateZone = new int[zoneCount];
+        climateZoneCount = -1;
+        foldedClimate = null;
+        dispatcher.reset(zoneCount);
+        double[] cropCoefficients = new double[zoneCount];
+        for (int zone = 0; zone < zoneCount; zone++) {
+            zoneIds[zone] = moistureData.getZoneId(zone);
+            CropProfile crop = ZONES.getCropProfile(zoneIds[zone]);
+            // Zones missing from the registry get middle-of-the-road settings
+            plantTypes[zone] = crop != null ? crop.getName() : null;
+            requiredMoisture[zone] = crop != null ? crop.getMoistureThreshold() : 40.00;
+            checkInterval[zone] = crop != null ? crop.getCheckIntervalMillis() : 30000L;
+            lastMoisture[zone] = Double.NaN;
+            cropCoefficients[zone] = crop != null ? crop.getCropCoefficient() : 1.00;
+            // Every zone gets its first check straight away
+            wheel.schedule(zone, now);
+        }
+        evapotranspiration.reset(cropCoefficients);
+        lastLightPoll = 0;
+        lightReadings = new int[0];
+    }
+    
+    private void checkDueZones(SoilMoistureSnapshot moistureData, long now) {
         System.out.println("\n--- Irrigation Report ---");
         System.out.println("============================================================");
         
-        List<String> irrigatedZones = new ArrayList<>();
+        List<String> dryZones = new ArrayList<>();
         List<String> monitoredZones = new ArrayList<>();
         
-        for (Map.Entry<String, Double> entry : moistureData.entrySet()) {
-            String zone = entry.getKey();
-            double moistureLevel = entry.getValue();
-            String plantType = GREENHOUSE_ZONES.get(zone);
-            double requiredMoisture = PLANT_MOISTURE_THRESHOLDS.getOrDefault(plantType, 40.00);
+        for (int i = 0; i < dueCount; i++) {
+            int zoneIndex = dueZones[i];
+            String zone = zoneIds[zoneIndex];
+            double moistureLevel = moistureData.getMoisture(zoneIndex);
+            String plantType = plantTypes[zoneIndex];
+            double requiredMoisture = this.requiredMoisture[zoneIndex];
             String formattedMoisture = String.format("%.2f", moistureLevel);
+            // Moisture expected by the time the next check could react, from the drying-rate estimate
+            double projectedMoisture = projectMoisture(zoneIndex, moistureLevel);
             
-            if (moistureLevel < requiredMoisture) {
+            if (projectedMoisture < requiredMoisture) {
+                // Pumps are limited, so dry zones wait their turn in the dispatcher
+                boolean queued = dispatcher.submit(zoneIndex, zone + " (" + plantType + ")",
+                    requiredMoisture - projectedMoisture, now);
                 System.out.println(zone + " (" + plantType + ", Moisture: " 
-                    + formattedMoisture + "%) -> Irrigating");
-                irrigatedZones.add(zone + " (" + plantType + ") - " + formattedMoisture + "%");
+                    + formattedMoisture + "%) -> " + (queued ? "Queued for irrigation" : "Irrigating"));
+                dryZones.add(zone + " (" + plantType + ") - " + formattedMoisture + "%");
             } else {
                 System.out.println(zone + " (" + plantType + ", Moisture: " 
                     + formattedMoisture + "%) -> No irrigation needed.");
+                dispatcher.withdraw(zoneIndex);
                 monitoredZones.add(zone + " (" + plantType + ") - " + formattedMoisture + "%");
             }
+            
+            wheel.schedule(zoneIndex, now + nextCheckDelay(zoneIndex, moistureLevel, now));
+            lastMoisture[zoneIndex] = moistureLevel;
+            lastCheckTime[zoneIndex] = now;
         }
         
+        System.out.println(dispatcher.describeMetrics());
         System.out.println("============================================================");
         
-        // Report to the greenhouse reporter
+        // Report to the greenhouse reporter; pump starts are reported by the dispatcher
         if (reporter != null) {
-            // If any zones were irrigated, report them
-            if (!irrigatedZones.isEmpty()) {
-                StringBuilder report = new StringBuilder("Irrigation activated for: ");
-                for (int i = 0; i < irrigatedZones.size(); i++) {
-                    if (i > 0) {
-                        report.append(", ");
-                    }
-                    report.append(irrigatedZones.get(i));
-                }
-                reporter.recordAction("Irrigation System", report.toString());
-            }
-            
             // If no zones needed irrigation, report that
-            if (irrigatedZones.isEmpty() && !monitoredZones.isEmpty()) {
-                reporter.recordAction("Irrigation System", 
-                    "Monitored " + monitoredZones.size() + " zones, all moisture levels sufficient");
+            if (dryZones.isEmpty() && !monitoredZones.isEmpty()) {
+                reporter.recordEvent(ActionCode.IRRIGATION_SUFFICIENT, null, null, monitoredZones.size());
+            }
+        }
+    }
+    
+    private double projectMoisture(int zone, double moistureLevel) {
+        double rate = evapotranspiration.getRatePerHour(zone);
+        return Double.isNaN(rate) ? moistureLevel : moistureLevel - rate * LEAD_MILLIS / 3_600_000.0;
+    }
+    
+    // With a drying-rate estimate: half the predicted time to the threshold, so zones far from dry are
+    // checked rarely. Otherwise the crop interval, shortened when the zone is drying and relaxed when not.
+    private long nextCheckDelay(int zone, double moistureLevel, long now) {
+        double margin = moistureLevel - requiredMoisture[zone];
+        if (margin <= 0) {
+            // Being irrigated: check again soon
+            return MIN_CHECK_MILLIS;
+        }
+        long predicted = evapotranspiration.predictMillisToLose(zone, margin);
+        if (predicted >= 0) {
+            return Math.max(MIN_CHECK_MILLIS, Math.min(MAX_CHECK_MILLIS, predicted / 2));
+        }
+        long delay = checkInterval[zone];
+        if (!Double.isNaN(lastMoisture[zone]) && now > lastCheckTime[zone]) {
+            double slope = (moistureLevel - lastMoisture[zone]) / (now - lastCheckTime[zone]);
+            if (slope < 0) {
+                // Look again about halfway to when the zone is expected to reach its threshold
+                delay = Math.min(delay, (long) (margin / -slope / 2));
+            } else {
+                delay *= 2;
             }
         }
+        return Math.max(MIN_CHECK_MILLIS, Math.min(MAX_CHECK_MILLIS, delay));
     }
     
-    // Schedule the irrigation check every 20 seconds continuously.
+    // Tick the per-zone scheduler; each zone is checked on its own interval.
     public void startIrrigationCheck() {
         System.out.println("[IrrigationController] Starting irrigation monitoring...");
-        scheduler.scheduleAtFixedRate(this::checkAndIrrigate, 0, 30, TimeUnit.SECONDS);
+        if (climateService != null) {
+            climateService.addClimateDataListener(climateListener);
+        }
+        scheduler.scheduleAtFixedRate(this::checkScheduledZones, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
     }
     
     public void stopIrrigationCheck() {
+        if (climateService != null) {
+            climateService.removeClimateDataListener(climateListener);
+        }
         scheduler.shutdownNow();
         System.out.println("[IrrigationController] Stopping irrigation monitoring.");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,219 @@
+package com.greenhouse.irrigationcontrolservice;
+
+import java.util.Arrays;
+
+import com.greenhouse.report.ActionCode;
+import com.greenhouse.report.IGreenhouseReporter;
+
+// Runs irrigation demands on a fixed number of pumps. To serve as many zones per hour as the pumps
+// allow, shorter runs (smaller deficits) go first; to keep the driest zones from starving behind a
+// stream of small ones, a demand's priority is its queue time plus RUN_WEIGHT times its run time, so
+// a long run is overtaken only by demands queued less than RUN_WEIGHT * (difference in run time)
+// after it. Waiting zones sit in an indexed binary heap, so queueing, re-keying and withdrawing a
+// zone are O(log n). A zone is queued at most once. Only used on the controller's thread.
+final class IrrigationDispatcher {
+    // Pumps that can run at once, and how long a pump runs per percentage point of deficit
+    private static final int PUMP_COUNT = Math.max(1, Integer.getInteger("greenhouse.irrigation.pumps", 2));
+    private static final long RUN_MILLIS_PER_PERCENT = Long.getLong("greenhouse.irrigation.runMsPerPercent", 1000);
+    private static final long MIN_RUN_MILLIS = Long.getLong("greenhouse.irrigation.minRunMs", 5000);
+    // How strongly shorter runs are preferred over earlier demands: 0 serves in arrival order
+    private static final long RUN_WEIGHT = Math.max(0, Long.getLong("greenhouse.irrigation.runWeight", 10));
+    private static final int NONE = -1;
+    
+    private final IGreenhouseReporter reporter;
+    // Heap of waiting zones, smallest priority first, and each zone's place in it (NONE when not waiting)
+    private int[] heap = new int[0];
+    private int heapSize;
+    private int[] heapIndex = new int[0];
+    // Per-zone demand, valid while the zone is waiting
+    private long[] priority = new long[0];
+    private long[] queuedAt = new long[0];
+    private double[] deficit = new double[0];
+    private long[] runMillis = new long[0];
+    private String[] label = new String[0];
+    // Which pump a zone runs on, or -1
+    private int[] runningPump = new int[0];
+    // Zone on each pump (-1 when idle) and when its run ends
+    private final int[] pumpZone = new int[PUMP_COUNT];
+    private final long[] pumpBusyUntil = new long[PUMP_COUNT];
+    private final String[] pumpLabel = new String[PUMP_COUNT];
+    
+    // Metrics
+    private int maxQueueDepth;
+    private long servedZones;
+    private long totalWaitMillis;
+    private long maxWaitMillis;
+    
+    IrrigationDispatcher(IGreenhouseReporter reporter) {
+        this.reporter = reporter;
+        Arrays.fill(pumpZone, -1);
+    }
+    
+    // Forget all demands, for a new zone layout
+    void reset(int zoneCount) {
+        heap = new int[zoneCount];
+        heapSize = 0;
+        heapIndex = new int[zoneCount];
+        Arrays.fill(heapIndex, NONE);
+        priority = new long[zoneCount];
+        queuedAt = new long[zoneCount];
+        deficit = new double[zoneCount];
+        runMillis = new long[zoneCount];
+        label = new String[zoneCount];
+        runningPump = new int[zoneCount];
+        Arrays.fill(runningPump, -1);
+        Arrays.fill(pumpZone, -1);
+    }
+    
+    // Ask for irrigation; returns false if the zone is already being irrigated
+    boolean submit(int zone, String zoneLabel, double zoneDeficit, long now) {
+        if (runningPump[zone] >= 0) {
+            return false;
+        }
+        boolean waiting = heapIndex[zone] != NONE;
+        if (!waiting) {
+            // A re-keyed demand keeps its place in time, so repeated readings do not reset its wait
+            queuedAt[zone] = now;
+            label[zone] = zoneLabel;
+        }
+        deficit[zone] = zoneDeficit;
+        runMillis[zone] = Math.max(MIN_RUN_MILLIS, (long) (zoneDeficit * RUN_MILLIS_PER_PERCENT));
+        long previous = priority[zone];
+        priority[zone] = queuedAt[zone] + RUN_WEIGHT * runMillis[zone];
+        
+        if (!waiting) {
+            heapIndex[zone] = heapSize;
+            heap[heapSize++] = zone;
+            siftUp(heapSize - 1);
+            maxQueueDepth = Math.max(maxQueueDepth, heapSize);
+        } else if (priority[zone] < previous) {
+            siftUp(heapIndex[zone]);
+        } else {
+            siftDown(heapIndex[zone]);
+        }
+        return true;
+    }
+    
+    // Drop a waiting demand once a newer reading shows the zone is no longer dry
+    void withdraw(int zone) {
+        if (heapIndex[zone] != NONE) {
+            removeAt(heapIndex[zone]);
+        }
+    }
+    
+    private boolean before(int zone, int other) {
+        // Equal priorities go in zone order, so the order never depends on heap history
+        return priority[zone] < priority[other] || priority[zone] == priority[other] && zone < other;
+    }
+    
+    private void siftUp(int index) {
+        int zone = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(zone, heap[parent])) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(zone, index);
+    }
+    
+    private void siftDown(int index) {
+        int zone = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], zone)) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(zone, index);
+    }
+    
+    private void place(int zone, int index) {
+        heap[index] = zone;
+        heapIndex[zone] = index;
+    }
+    
+    private void removeAt(int index) {
+        int zone = heap[index];
+        heapIndex[zone] = NONE;
+        int last = heap[--heapSize];
+        if (index < heapSize) {
+            place(last, index);
+            siftDown(index);
+            siftUp(heapIndex[last]);
+        }
+    }
+    
+    // Free the pumps whose runs have ended and start the most urgent waiting zones on them
+    void dispatch(long now) {
+        for (int pump = 0; pump < PUMP_COUNT; pump++) {
+            if (pumpZone[pump] >= 0 && pumpBusyUntil[pump] <= now) {
+                System.out.println("[IrrigationDispatcher] " + pumpLabel[pump] + " -> Irrigation finished on pump "
+                        + (pump + 1));
+                runningPump[pumpZone[pump]] = -1;
+                pumpZone[pump] = -1;
+            }
+            if (pumpZone[pump] >= 0 || heapSize == 0) {
+                continue;
+            }
+            
+            int zone = heap[0];
+            removeAt(0);
+            long waited = now - queuedAt[zone];
+            long run = runMillis[zone];
+            pumpZone[pump] = zone;
+            pumpBusyUntil[pump] = now + run;
+            pumpLabel[pump] = label[zone];
+            runningPump[zone] = pump;
+            
+            servedZones++;
+            totalWaitMillis += waited;
+            maxWaitMillis = Math.max(maxWaitMillis, waited);
+            
+            System.out.println("[IrrigationDispatcher] " + label[zone] + " - deficit "
+                    + String.format("%.2f", deficit[zone]) + "%, waited " + String.format("%.1f", waited / 1000.0)
+                    + "s, pump " + (pump + 1) + " for " + String.format("%.1f", run / 1000.0) + "s -> Irrigating");
+            // One event per pump start, as numbers; the reporter formats it on its own thread
+            if (reporter != null) {
+                reporter.recordEvent(ActionCode.IRRIGATION_STARTED, null, label[zone], pump + 1, deficit[zone],
+                        waited / 1000.0, run / 1000.0);
+            }
+        }
+    }
+    
+    int getQueueDepth() {
+        return heapSize;
+    }
+    
+    int getPumpCount() {
+        return PUMP_COUNT;
+    }
+    
+    int getBusyPumps() {
+        int busy = 0;
+        for (int zone : pumpZone) {
+            if (zone >= 0) {
+                busy++;
+            }
+        }
+        return busy;
+    }
+    
+    // One line of queue metrics for the irrigation report
+    String describeMetrics() {
+        return "Pumps busy: " + getBusyPumps() + "/" + PUMP_COUNT + ", queue depth: " + heapSize + " (max "
+                + maxQueueDepth + "), zones served: " + servedZones + ", average wait: "
+                + String.format("%.1f", servedZones == 0 ? 0.0 : totalWaitMillis / 1000.0 / servedZones)
+                + "s, max wait: " + String.format("%.1f", maxWaitMillis / 1000.0) + "s";
+    }
+}
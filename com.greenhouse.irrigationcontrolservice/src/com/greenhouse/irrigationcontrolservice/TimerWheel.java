@@ -0,0 +1,145 @@
+package com.greenhouse.irrigationcontrolservice;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Hierarchical timer wheel for integer IDs (zone indexes). Four levels of 64 slots cover 2^24 ticks;
+// later deadlines wait in the last level and are re-placed when they come round. Scheduling,
+// cancelling and firing are O(1) per entry, so a tick only costs as much as the entries that are due.
+// Not thread-safe: owned by a single scheduler thread.
+final class TimerWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+    private static final int NONE = -1;
+    
+    private final long tickMillis;
+    // Head of each slot's doubly linked list, LEVELS * SLOTS entries
+    private final int[] heads = new int[LEVELS * SLOTS];
+    // Per-ID list links, deadline (in ticks) and slot, NONE when not scheduled
+    private int[] next = new int[0];
+    private int[] prev = new int[0];
+    private int[] slotOf = new int[0];
+    private long[] deadline = new long[0];
+    // Last tick that has been processed
+    private long currentTick;
+    private int size;
+    
+    TimerWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        Arrays.fill(heads, NONE);
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    boolean isScheduled(int id) {
+        return id < slotOf.length && slotOf[id] != NONE;
+    }
+    
+    // Schedule (or reschedule) an ID to fire at the first tick at or after deadlineMillis
+    void schedule(int id, long deadlineMillis) {
+        ensureCapacity(id + 1);
+        if (slotOf[id] != NONE) {
+            unlink(id);
+        }
+        deadline[id] = (deadlineMillis + tickMillis - 1) / tickMillis;
+        place(id);
+        size++;
+    }
+    
+    void cancel(int id) {
+        if (isScheduled(id)) {
+            unlink(id);
+        }
+    }
+    
+    // Process every tick up to nowMillis, passing each due ID to the callback.
+    // The callback may schedule or cancel IDs, including the one it was given.
+    int advance(long nowMillis, IntConsumer due) {
+        long target = nowMillis / tickMillis;
+        int fired = 0;
+        while (currentTick < target) {
+            currentTick++;
+            
+            // Move the entries of higher-level slots that come round into this tick down a level
+            for (int level = 1; level < LEVELS; level++) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                int slot = level * SLOTS + (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+                while (heads[slot] != NONE) {
+                    int id = heads[slot];
+                    unlink(id);
+                    place(id);
+                    size++;
+                }
+            }
+            
+            // Entries are taken off one at a time, so the callback may freely change any other entry
+            int slot = (int) (currentTick & SLOT_MASK);
+            while (heads[slot] != NONE) {
+                int id = heads[slot];
+                unlink(id);
+                if (deadline[id] <= currentTick) {
+                    fired++;
+                    due.accept(id);
+                } else {
+                    place(id);
+                    size++;
+                }
+            }
+        }
+        return fired;
+    }
+    
+    // Link an entry into the slot for its deadline; never the slot of the tick being processed
+    private void place(int id) {
+        long delta = Math.min(Math.max(deadline[id] - currentTick, 1), MAX_DELTA);
+        long tick = currentTick + delta;
+        int level = 0;
+        while (delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        int head = heads[slot];
+        next[id] = head;
+        prev[id] = NONE;
+        if (head != NONE) {
+            prev[head] = id;
+        }
+        heads[slot] = id;
+        slotOf[id] = slot;
+    }
+    
+    private void unlink(int id) {
+        int slot = slotOf[id];
+        if (prev[id] != NONE) {
+            next[prev[id]] = next[id];
+        } else {
+            heads[slot] = next[id];
+        }
+        if (next[id] != NONE) {
+            prev[next[id]] = prev[id];
+        }
+        slotOf[id] = NONE;
+        size--;
+    }
+    
+    private void ensureCapacity(int capacity) {
+        if (capacity <= slotOf.length) {
+            return;
+        }
+        int length = Math.max(capacity, slotOf.length * 2);
+        int old = slotOf.length;
+        next = Arrays.copyOf(next, length);
+        prev = Arrays.copyOf(prev, length);
+        deadline = Arrays.copyOf(deadline, length);
+        slotOf = Arrays.copyOf(slotOf, length);
+        Arrays.fill(slotOf, old, length, NONE);
+    }
+}
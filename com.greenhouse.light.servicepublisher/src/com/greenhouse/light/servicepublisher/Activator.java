@@ -3,59 +3,141 @@ package com.greenhouse.light.servicepublisher;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import com.greenhouse.common.sensorlog.SensorChannel;
+import com.greenhouse.common.sensorlog.SensorRecorder;
+import com.greenhouse.common.sensorlog.SensorReplay;
+import com.greenhouse.common.sensorlog.SensorStreamConfig;
+import com.greenhouse.zoneregistry.ZoneRegistry;
+
 public class Activator implements BundleActivator, ILightIntensityService {
     private ServiceRegistration<?> registration;
     private ExecutorService executorService;
     private volatile boolean running = true;
 
-    // Define named zones
-    private final String[] zones = {"Zone A - Tomatoes", "Zone B - Cucumbers", "Zone C - Peppers", "Zone D - Lettuce", "Zone E - Herbs"};
-    private final Map<String, Integer> lightIntensityMap = new HashMap<>();
+    // Zones come from the shared registry so every bundle uses the same names
+    private final String[] zones = ZoneRegistry.getDefault().getZoneNames();
+    // Latest readings, replaced as a whole by the generator thread; readers never see a half-written cycle
+    private volatile LightReadings readings = new LightReadings(0, defaultIntensities(zones.length));
+    // Live, record or replay, plus seed and update interval for repeatable runs
+    private final SensorStreamConfig streamConfig = SensorStreamConfig.forSource("light");
 
     @Override
     public void start(BundleContext bundleContext) {
         registration = bundleContext.registerService(ILightIntensityService.class, this, null);
         System.out.println("[Producer] Light Intensity Service Registered.");
 
-        // Initialize all zones with default intensity
-        for (String zone : zones) {
-            lightIntensityMap.put(zone, 500); // Default intensity
-        }
-
-        // Start background task to generate light intensity data every 30 seconds
+        // Start background task to generate (or replay) light intensity data every 30 seconds
         executorService = Executors.newSingleThreadExecutor();
-        executorService.execute(this::generateLightData);
+        if (streamConfig.getMode() == SensorStreamConfig.Mode.REPLAY) {
+            executorService.execute(this::replayLightData);
+        } else {
+            executorService.execute(this::generateLightData);
+        }
+        System.out.println("[Producer] Light data: " + streamConfig);
     }
 
     private void generateLightData() {
-        Random random = new Random();
+        SimulatedDaylight daylight = new SimulatedDaylight(zones.length, streamConfig.newRandom());
+        SensorRecorder recorder = null;
+        if (streamConfig.getMode() == SensorStreamConfig.Mode.RECORD) {
+            try {
+                recorder = streamConfig.openRecorder();
+            } catch (IOException e) {
+                System.err.println("[Producer] ERROR: Cannot record light data: " + e.getMessage());
+            }
+        }
+
         while (running) {
             try {
-                for (String zone : zones) {
-                    int newIntensity = random.nextInt(1000); // Generate random intensity for each zone
-                    lightIntensityMap.put(zone, newIntensity);
+                long now = System.currentTimeMillis();
+                int[] intensities = new int[zones.length];
+                double sun = daylight.sunAt(now);
+                for (int i = 0; i < zones.length; i++) {
+                    int newIntensity = daylight.next(i, sun); // Follows the time of day, drifting per zone
+                    intensities[i] = newIntensity;
                     //System.out.println("[Producer] " + zone + " Light Intensity: " + newIntensity + " lux");
+                    if (recorder != null) {
+                        recorder.record(now, i, SensorChannel.LIGHT_INTENSITY, newIntensity);
+                    }
+                }
+                publish(intensities);
+                if (recorder != null) {
+                    recorder.endTick(now);
                 }
 
-                Thread.sleep(30000); // Update every 30 seconds
+                Thread.sleep(streamConfig.getIntervalMillis()); // Update every 30 seconds unless configured otherwise
+            } catch (IOException e) {
+                System.err.println("[Producer] ERROR: Recording stopped: " + e.getMessage());
+                closeQuietly(recorder);
+                recorder = null;
             } catch (InterruptedException e) {
-                System.err.println("[Producer] ERROR: Interrupted while generating light data.");
+                if (running) {
+                    System.err.println("[Producer] ERROR: Interrupted while generating light data.");
+                }
                 break;
             }
         }
+        closeQuietly(recorder);
+    }
+
+    private void replayLightData() {
+        int[] staged = readings.intensities.clone();
+        try {
+            long cycles = streamConfig.openReplay().run(new SensorReplay.Handler() {
+                @Override
+                public void reading(long timestamp, int zone, int channel, double value) {
+                    if (channel == SensorChannel.LIGHT_INTENSITY && zone >= 0 && zone < zones.length) {
+                        staged[zone] = (int) value;
+                    }
+                }
+
+                @Override
+                public void tick(long timestamp) {
+                    publish(staged.clone());
+                }
+            });
+            System.out.println("[Producer] Light replay finished after " + cycles + " update cycles.");
+        } catch (IOException e) {
+            System.err.println("[Producer] ERROR: Light replay failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            if (running) {
+                System.err.println("[Producer] ERROR: Interrupted while replaying light data.");
+            }
+        }
+    }
+
+    private void publish(int[] intensities) {
+        readings = new LightReadings(readings.version + 1, intensities);
+    }
+
+    private static int[] defaultIntensities(int zoneCount) {
+        int[] intensities = new int[zoneCount];
+        Arrays.fill(intensities, 500); // Default intensity
+        return intensities;
+    }
+
+    private static void closeQuietly(SensorRecorder recorder) {
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                // Nothing more to save
+            }
+        }
     }
 
     @Override
     public void stop(BundleContext bundleContext) {
         running = false;
         if (executorService != null) {
-            executorService.shutdown();
+            executorService.shutdownNow(); // wake the generator so the recording is closed now
         }
         registration.unregister();
         //System.out.println("[Producer] Light Intensity Service Stopped.");
@@ -63,6 +145,44 @@ public class Activator implements BundleActivator, ILightIntensityService {
 
     @Override
     public Map<String, Integer> getLightIntensity() {
-        return new HashMap<>(lightIntensityMap); // Return latest light intensity for all zones
+        LightReadings current = readings;
+        Map<String, Integer> intensities = new HashMap<>();
+        for (int i = 0; i < zones.length; i++) {
+            intensities.put(zones[i], current.intensities[i]); // Return latest light intensity for all zones
+        }
+        return intensities;
+    }
+
+    @Override
+    public int getZoneCount() {
+        return zones.length;
+    }
+
+    @Override
+    public String getZoneId(int zone) {
+        return zones[zone];
+    }
+
+    @Override
+    public long readLightIntensity(int[] target) {
+        LightReadings current = readings;
+        System.arraycopy(current.intensities, 0, target, 0, Math.min(target.length, current.intensities.length));
+        return current.version;
+    }
+
+    @Override
+    public long getVersion() {
+        return readings.version;
+    }
+
+    // One published cycle of readings; never modified after publishing
+    private static final class LightReadings {
+        final long version;
+        final int[] intensities;
+
+        LightReadings(long version, int[] intensities) {
+            this.version = version;
+            this.intensities = intensities;
+        }
     }
 }
@@ -4,6 +4,19 @@ import java.util.Map;
 
 public interface ILightIntensityService {
 	
+	// Latest intensity of every zone as a map of zone ID to lux; a new copy on every call
 	Map<String, Integer> getLightIntensity();
+	
+	// Number of zones, and the zone ID at each index of readLightIntensity
+	int getZoneCount();
+	
+	String getZoneId(int zone);
+	
+	// Copies the latest intensity of every zone, in lux, into target (indexed by zone, up to its length)
+	// and returns the version of the copied readings. Allocates nothing, so it can be polled freely.
+	long readLightIntensity(int[] target);
+	
+	// Version of the latest readings; changes whenever new readings are published
+	long getVersion();
 
 }
@@ -0,0 +1,49 @@
+package com.greenhouse.light.servicepublisher;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Random;
+
+// Simulated light readings that behave like a greenhouse day: a sine-shaped daylight curve between
+// sunrise and sunset, scaled per zone by a cloud cover factor that drifts as a bounded random walk,
+// plus a little sensor noise. Consecutive readings of a zone stay close, so consumers see the slow
+// transitions a real sensor reports rather than independent random values.
+final class SimulatedDaylight {
+    private static final int PEAK_LUX = Integer.getInteger("greenhouse.light.sim.peakLux", 1000);
+    private static final double SUNRISE_HOUR = 6.0;
+    private static final double SUNSET_HOUR = 20.0;
+    // Cloud cover factor bounds and its largest change per reading
+    private static final double MIN_CLOUD = 0.5;
+    private static final double MAX_CLOUD = 1.0;
+    private static final double CLOUD_STEP = 0.01;
+    private static final int NOISE_LUX = 5;
+
+    private final Random random;
+    private final ZoneId timeZone = ZoneId.systemDefault();
+    private final double[] cloud;
+
+    SimulatedDaylight(int zoneCount, Random random) {
+        this.random = random;
+        cloud = new double[zoneCount];
+        for (int zone = 0; zone < zoneCount; zone++) {
+            cloud[zone] = MIN_CLOUD + random.nextDouble() * (MAX_CLOUD - MIN_CLOUD);
+        }
+    }
+
+    // Daylight at the given time, 0 at night and 1 at solar noon
+    double sunAt(long now) {
+        double hour = Instant.ofEpochMilli(now).atZone(timeZone).toLocalTime().toSecondOfDay() / 3600.0;
+        if (hour <= SUNRISE_HOUR || hour >= SUNSET_HOUR) {
+            return 0;
+        }
+        return Math.sin(Math.PI * (hour - SUNRISE_HOUR) / (SUNSET_HOUR - SUNRISE_HOUR));
+    }
+
+    // Next reading of a zone, in lux
+    int next(int zone, double sun) {
+        double drift = (random.nextDouble() * 2 - 1) * CLOUD_STEP;
+        cloud[zone] = Math.max(MIN_CLOUD, Math.min(MAX_CLOUD, cloud[zone] + drift));
+        int noise = random.nextInt(2 * NOISE_LUX + 1) - NOISE_LUX;
+        return Math.max(0, (int) Math.round(PEAK_LUX * sun * cloud[zone]) + noise);
+    }
+}
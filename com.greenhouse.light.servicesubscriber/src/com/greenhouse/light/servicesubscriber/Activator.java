@@ -1,86 +1,169 @@
 package com.greenhouse.light.servicesubscriber;
 
+import com.greenhouse.common.binding.ServiceBinding;
 import com.greenhouse.light.servicepublisher.ILightIntensityService;
+import com.greenhouse.report.ActionCode;
+import com.greenhouse.report.ForwardingReporter;
 import com.greenhouse.report.IGreenhouseReporter;
+import com.greenhouse.zoneregistry.ZoneRegistry;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
-import org.osgi.framework.ServiceReference;
 
-import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class Activator implements BundleActivator {
-    private ServiceReference<ILightIntensityService> lightServiceRef;
-    private ServiceReference<IGreenhouseReporter> reporterRef;
-    private ILightIntensityService lightIntensityService;
+    // Bound through trackers, so provider restarts are picked up without registry lookups in the loop
+    private ServiceBinding<ILightIntensityService> lightService;
+    private ServiceBinding<IGreenhouseReporter> reporterBinding;
+    private ServiceBinding<ILightingDriver> driverBinding;
     private IGreenhouseReporter reporter;
     private ExecutorService executorService;
     private volatile boolean running = true;
+    // Per-zone lighting mode and daily light integral; only touched by the monitoring thread
+    private final LightControlEngine lightEngine = new LightControlEngine(ZoneRegistry.getDefault());
+    private ILightIntensityService boundService;
+    private int[] intensities = new int[0];
+    private int[] engineZones = new int[0];
+    private long lastVersion = -1;
+    private LightingOutputStage output;
     
     @Override
     public void start(BundleContext bundleContext) {
-        // Try to get the reporter service first
-        reporterRef = bundleContext.getServiceReference(IGreenhouseReporter.class);
-        if (reporterRef != null) {
-            reporter = bundleContext.getService(reporterRef);
-            System.out.println("[LightConsumer] Connected to greenhouse reporter.");
-        } else {
-            System.out.println("[LightConsumer] Greenhouse reporter not available.");
-        }
+        reporterBinding = ServiceBinding.open(bundleContext, IGreenhouseReporter.class);
+        reporter = new ForwardingReporter(reporterBinding);
         
-        // Get the light service
-        lightServiceRef = bundleContext.getServiceReference(ILightIntensityService.class);
-        if (lightServiceRef != null) {
-            lightIntensityService = bundleContext.getService(lightServiceRef);
-            System.out.println("[LightConsumer] Light Intensity Service Found.");
-            
-            // Start monitoring light intensity and adjusting lights
-            executorService = Executors.newSingleThreadExecutor();
-            executorService.execute(this::monitorLightIntensity);
-        } else {
-            System.err.println("[LightConsumer] ERROR: Light Intensity Service Not Found.");
-        }
+        // Use a registered fixture driver while there is one, otherwise simulate the fixtures
+        driverBinding = ServiceBinding.open(bundleContext, ILightingDriver.class);
+        ILightingDriver simulated = new SimulatedLightingDriver();
+        output = new LightingOutputStage(() -> {
+            ILightingDriver driver = driverBinding.get();
+            return driver != null ? driver : simulated;
+        });
+        System.out.println("[LightConsumer] Sending light frames to the "
+                + (driverBinding.isBound() ? driverBinding.get() : simulated).getName() + " driver.");
+        
+        lightService = ServiceBinding.open(bundleContext, ILightIntensityService.class,
+                new ServiceBinding.Listener<ILightIntensityService>() {
+                    @Override
+                    public void bound(ILightIntensityService service) {
+                        System.out.println("[LightConsumer] Light Intensity Service Found.");
+                    }
+                    
+                    @Override
+                    public void unbound(ILightIntensityService service) {
+                        System.err.println("[LightConsumer] Light Intensity Service lost, waiting for it to return.");
+                    }
+                });
+        
+        // Start monitoring light intensity and adjusting lights
+        executorService = Executors.newSingleThreadExecutor();
+        executorService.execute(this::monitorLightIntensity);
     }
 
     private void monitorLightIntensity() {
         while (running) {
             try {
+                ILightIntensityService lightIntensityService = lightService.get();
                 if (lightIntensityService != null) {
-                    Map<String, Integer> intensityData = lightIntensityService.getLightIntensity();
-                    for (Map.Entry<String, Integer> entry : intensityData.entrySet()) {
-                        String zone = entry.getKey();
-                        int intensity = entry.getValue();
-                        adjustLighting(zone, intensity);
+                    if (lightIntensityService != boundService) {
+                        // A restarted provider starts its own versions and may order its zones differently
+                        boundService = lightIntensityService;
+                        intensities = new int[0];
+                        lastVersion = -1;
+                    }
+                    long now = System.currentTimeMillis();
+                    if (lightEngine.rollOver(now)) {
+                        reportDailyLightIntegrals();
+                    }
+                    int zoneCount = lightIntensityService.getZoneCount();
+                    if (zoneCount != intensities.length) {
+                        // Map the service's zone indexes to registry zone ids once, not on every poll
+                        intensities = new int[zoneCount];
+                        engineZones = new int[zoneCount];
+                        int unknown = 0;
+                        for (int i = 0; i < zoneCount; i++) {
+                            engineZones[i] = lightEngine.zoneIndex(lightIntensityService.getZoneId(i));
+                            if (engineZones[i] < 0) {
+                                unknown++;
+                            }
+                        }
+                        if (unknown > 0) {
+                            System.err.println("[LightConsumer] " + unknown
+                                    + " zone(s) missing from the zone registry are not controlled.");
+                        }
+                    }
+                    long version = lightIntensityService.readLightIntensity(intensities);
+                    if (version != lastVersion) {
+                        lastVersion = version;
+                        for (int i = 0; i < zoneCount; i++) {
+                            int zone = engineZones[i];
+                            if (zone < 0) {
+                                continue;
+                            }
+                            int intensity = intensities[i];
+                            // Only zones that change mode produce a command
+                            int mode = lightEngine.update(zone, intensity, now);
+                            if (mode != LightControlEngine.NO_CHANGE) {
+                                adjustLighting(zone, mode, intensity, now);
+                            }
+                        }
+                        sendFrame();
                     }
                 }
                 Thread.sleep(30000); // Check every 30 seconds
             } catch (InterruptedException e) {
-                System.err.println("[LightConsumer] ERROR: Interrupted while monitoring light data.");
+                if (running) {
+                    System.err.println("[LightConsumer] ERROR: Interrupted while monitoring light data.");
+                }
                 break;
             }
         }
     }
 
-    private void adjustLighting(String zone, int intensity) {
-        if (intensity < 300) {
-            System.out.println("[LightConsumer] " + zone + ": Increasing light brightness.");
-            // Report the action to the reporter service if available
-            if (reporter != null) {
-                reporter.recordAction("Light System", "Increased brightness in " + zone + " (" + intensity + " lux)");
-            }
-        } else if (intensity > 700) {
-            System.out.println("[LightConsumer] " + zone + ": Dimming lights.");
+    // One bus write per cycle with every fixture's level; skipped when nothing changed
+    private void sendFrame() {
+        int channels = lightEngine.getZoneCount();
+        output.beginFrame(channels);
+        for (int zone = 0; zone < channels; zone++) {
+            output.setLevel(zone, lightEngine.getLevel(zone));
+        }
+        output.flush();
+    }
+
+    private void adjustLighting(int zoneIndex, int mode, int intensity, long now) {
+        String zone = lightEngine.getZoneId(zoneIndex);
+        double dliSoFar = lightEngine.getDli(zoneIndex);
+        String dli = String.format("DLI %.1f/%.1f mol/m²", dliSoFar, lightEngine.getDliTarget());
+        if (mode == LightControlEngine.BOOST) {
+            double supplemental = lightEngine.getSupplementalPpfd(zoneIndex, now);
+            System.out.println("[LightConsumer] " + zone + ": Increasing light brightness (" + dli
+                    + String.format(", plan +%.0f µmol/m²/s", supplemental) + ").");
+            // Report the action to the reporter service if available; it formats the numbers itself
+            reporter.recordEvent(ActionCode.LIGHT_BOOSTED, zone, null, intensity, dliSoFar, lightEngine.getDliTarget(), 0);
+        } else if (mode == LightControlEngine.DIM) {
+            System.out.println("[LightConsumer] " + zone + ": Dimming lights (" + dli + ").");
             // Report the action
-            if (reporter != null) {
-                reporter.recordAction("Light System", "Dimmed lights in " + zone + " (" + intensity + " lux)");
-            }
+            reporter.recordEvent(ActionCode.LIGHT_DIMMED, zone, null, intensity, dliSoFar, lightEngine.getDliTarget(), 0);
         } else {
-            System.out.println("[LightConsumer] " + zone + ": Lighting is optimal.");
+            System.out.println("[LightConsumer] " + zone + ": Lighting is optimal (" + dli + ").");
             // Report the action
-            if (reporter != null) {
-                reporter.recordAction("Light System", "Maintained optimal lighting in " + zone + " (" + intensity + " lux)");
+            reporter.recordEvent(ActionCode.LIGHT_RESTORED, zone, null, intensity, dliSoFar, lightEngine.getDliTarget(), 0);
+        }
+    }
+
+    // One summary per zone and day instead of one entry per reading
+    private void reportDailyLightIntegrals() {
+        for (int zone = 0; zone < lightEngine.getZoneCount(); zone++) {
+            if (!lightEngine.hasReadings(zone)) {
+                continue;
             }
+            String summary = String.format("Daily light integral in %s: %.1f of %.1f mol/m²", lightEngine.getZoneId(zone),
+                    lightEngine.getPreviousDli(zone), lightEngine.getDliTarget());
+            System.out.println("[LightConsumer] " + summary);
+            reporter.recordEvent(ActionCode.LIGHT_DAILY_SUMMARY, lightEngine.getZoneId(zone), null, 0,
+                    lightEngine.getPreviousDli(zone), lightEngine.getDliTarget(), 0);
         }
     }
 
@@ -88,17 +171,20 @@ public class Activator implements BundleActivator {
     public void stop(BundleContext bundleContext) {
         running = false;
         if (executorService != null) {
-            executorService.shutdown();
-        }
-        
-        if (lightServiceRef != null) {
-            bundleContext.ungetService(lightServiceRef);
+            executorService.shutdownNow(); // wake the polling thread instead of waiting out its sleep
+            try {
+                // The loop must be gone before its bindings are closed, or it runs one more pass against them
+                executorService.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
         
-        if (reporterRef != null) {
-            bundleContext.ungetService(reporterRef);
-        }
+        lightService.close();
+        driverBinding.close();
+        reporterBinding.close();
         
-        System.out.println("[LightConsumer] Light Intensity Consumer Stopped.");
+        System.out.println("[LightConsumer] Light Intensity Consumer Stopped (" + lightEngine.describeMetrics() + "; "
+                + output.describeMetrics() + ").");
     }
 }
\ No newline at end of file
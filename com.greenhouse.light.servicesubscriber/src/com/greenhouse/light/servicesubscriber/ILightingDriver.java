@@ -0,0 +1,12 @@
+package com.greenhouse.light.servicesubscriber;
+
+// Bus driver for the dimmable fixtures. The light subscriber uses a registered ILightingDriver service
+// when there is one, and the simulated driver otherwise.
+public interface ILightingDriver {
+    // Name shown in the consumer's log
+    String getName();
+
+    // Writes one full frame, one level (0-255) per channel, channel = zone index.
+    // Called at most once per control cycle; levels is reused afterwards, so copy it to keep it.
+    void writeFrame(long sequence, byte[] levels, int channelCount);
+}
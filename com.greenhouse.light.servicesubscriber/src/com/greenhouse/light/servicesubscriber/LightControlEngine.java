@@ -0,0 +1,170 @@
+package com.greenhouse.light.servicesubscriber;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+import com.greenhouse.zoneregistry.ZoneRegistry;
+
+// Keeps the lighting mode of every zone and only reports a command when a zone changes mode.
+// Alongside it integrates each zone's readings into a daily light integral (DLI), so the
+// supplemental lighting still needed today can be planned against a target.
+// Zones are the registry's dense zone ids. Only used on the monitoring thread.
+class LightControlEngine {
+    static final int NO_CHANGE = -1;
+    static final int OPTIMAL = 0;
+    static final int BOOST = 1;
+    static final int DIM = 2;
+
+    // Mode thresholds; a zone has to clear a threshold by the hysteresis band to leave BOOST or DIM,
+    // so readings hovering around a threshold don't toggle the lights every cycle
+    private static final int LOW_LUX = Integer.getInteger("greenhouse.light.lowLux", 300);
+    private static final int HIGH_LUX = Integer.getInteger("greenhouse.light.highLux", 700);
+    private static final int HYSTERESIS_LUX = Integer.getInteger("greenhouse.light.hysteresisLux", 25);
+    // Fixture level (0-255) for each mode, indexed by OPTIMAL, BOOST and DIM
+    private static final int[] MODE_LEVELS = {
+            Integer.getInteger("greenhouse.light.level.optimal", 128),
+            Integer.getInteger("greenhouse.light.level.boost", 255),
+            Integer.getInteger("greenhouse.light.level.dim", 0)};
+
+    // Sunlight conversion from lux to photosynthetic photon flux density (µmol/m²/s)
+    private static final double PPFD_PER_LUX = 0.0185;
+    // Target DLI in mol/m²/day, and the hour by which supplemental lighting should have reached it
+    private static final double DLI_TARGET = Double.parseDouble(System.getProperty("greenhouse.light.dliTarget", "17.0"));
+    private static final int PHOTOPERIOD_END_HOUR = Integer.getInteger("greenhouse.light.photoperiodEndHour", 22);
+    // Longer gaps between readings (service restarts, missed polls) are not integrated across
+    private static final long MAX_GAP_MILLIS = 5 * 60 * 1000;
+
+    private final ZoneId timeZone = ZoneId.systemDefault();
+    private final ZoneRegistry registry;
+    private final int zoneCount;
+    private final int[] mode;
+    private final double[] lastPpfd;
+    private final long[] lastSampleTime;
+    private final double[] dli;
+    private final double[] previousDli;
+    private LocalDate day;
+
+    private volatile long readings;
+    private volatile long commands;
+
+    LightControlEngine(ZoneRegistry registry) {
+        this.registry = registry;
+        zoneCount = registry.getZoneCount();
+        mode = new int[zoneCount];
+        Arrays.fill(mode, NO_CHANGE); // the first reading always reports a mode
+        lastPpfd = new double[zoneCount];
+        lastSampleTime = new long[zoneCount];
+        dli = new double[zoneCount];
+        previousDli = new double[zoneCount];
+    }
+
+    // Engine zone for a light service zone, or -1 if the registry does not know it; for mapping
+    // a service's layout once, not for every reading
+    int zoneIndex(String zoneId) {
+        return registry.getZoneId(zoneId);
+    }
+
+    // Starts a new integral for every zone when the local date changes; returns true if it did
+    boolean rollOver(long now) {
+        LocalDate today = Instant.ofEpochMilli(now).atZone(timeZone).toLocalDate();
+        if (today.equals(day)) {
+            return false;
+        }
+        boolean rolled = day != null;
+        day = today;
+        if (rolled) {
+            for (int zone = 0; zone < zoneCount; zone++) {
+                previousDli[zone] = dli[zone];
+                dli[zone] = 0;
+            }
+        }
+        return rolled;
+    }
+
+    // Folds one reading into the zone's integral and returns its new mode, or NO_CHANGE
+    int update(int zone, int lux, long now) {
+        readings++;
+        double ppfd = lux * PPFD_PER_LUX;
+        long elapsed = now - lastSampleTime[zone];
+        if (lastSampleTime[zone] != 0 && elapsed > 0 && elapsed <= MAX_GAP_MILLIS) {
+            // Trapezoid between the two readings, µmol to mol
+            dli[zone] += (lastPpfd[zone] + ppfd) * 0.5 * elapsed / 1000.0 / 1_000_000.0;
+        }
+        lastPpfd[zone] = ppfd;
+        lastSampleTime[zone] = now;
+
+        int next = nextMode(mode[zone], lux);
+        if (next == mode[zone]) {
+            return NO_CHANGE;
+        }
+        mode[zone] = next;
+        commands++;
+        return next;
+    }
+
+    private static int nextMode(int current, int lux) {
+        if (lux < LOW_LUX) {
+            return BOOST;
+        }
+        if (lux > HIGH_LUX) {
+            return DIM;
+        }
+        if (current == BOOST && lux < LOW_LUX + HYSTERESIS_LUX) {
+            return BOOST;
+        }
+        if (current == DIM && lux > HIGH_LUX - HYSTERESIS_LUX) {
+            return DIM;
+        }
+        return OPTIMAL;
+    }
+
+    // Fixture level for the zone's current mode; zones without readings yet stay off
+    int getLevel(int zone) {
+        int current = mode[zone];
+        return current == NO_CHANGE ? 0 : MODE_LEVELS[current];
+    }
+
+    String getZoneId(int zone) {
+        return registry.getZoneName(zone);
+    }
+
+    // Whether any reading has been folded into the zone yet
+    boolean hasReadings(int zone) {
+        return lastSampleTime[zone] != 0;
+    }
+
+    int getZoneCount() {
+        return zoneCount;
+    }
+
+    double getDli(int zone) {
+        return dli[zone];
+    }
+
+    double getPreviousDli(int zone) {
+        return previousDli[zone];
+    }
+
+    double getDliTarget() {
+        return DLI_TARGET;
+    }
+
+    // PPFD the lamps would have to add, on top of the current light, to reach the target by the end of the photoperiod
+    double getSupplementalPpfd(int zone, long now) {
+        long end = Instant.ofEpochMilli(now).atZone(timeZone).toLocalDate().atTime(PHOTOPERIOD_END_HOUR, 0)
+                .atZone(timeZone).toInstant().toEpochMilli();
+        double remainingSeconds = (end - now) / 1000.0;
+        if (remainingSeconds <= 0) {
+            return 0;
+        }
+        double projected = dli[zone] + lastPpfd[zone] * remainingSeconds / 1_000_000.0;
+        double deficit = DLI_TARGET - projected;
+        return deficit > 0 ? deficit * 1_000_000.0 / remainingSeconds : 0;
+    }
+
+    String describeMetrics() {
+        return readings + " readings, " + commands + " light commands";
+    }
+}
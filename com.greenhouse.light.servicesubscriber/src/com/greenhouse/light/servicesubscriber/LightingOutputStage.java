@@ -0,0 +1,74 @@
+package com.greenhouse.light.servicesubscriber;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+// Collects the dim levels decided in one control cycle into a single frame and hands it to the driver
+// in one write. Frames identical to the last one sent are not written at all, unless the driver has
+// changed since, so a restarted driver always gets the current levels.
+// Only used on the monitoring thread.
+class LightingOutputStage {
+    private final Supplier<ILightingDriver> drivers;
+    private ILightingDriver driver;
+    private byte[] frame = new byte[0];
+    private byte[] sent = new byte[0];
+    private int channelCount;
+    private boolean sentAny;
+    private long sequence;
+    private long frameStart;
+
+    private long framesSent;
+    private long framesSuppressed;
+    private long totalBuildNanos;
+    private long maxBuildNanos;
+
+    LightingOutputStage(Supplier<ILightingDriver> drivers) {
+        this.drivers = drivers;
+        this.driver = drivers.get();
+    }
+
+    // Starts a frame for channelCount fixtures; levels not set in this cycle keep their previous value
+    void beginFrame(int channelCount) {
+        frameStart = System.nanoTime();
+        if (channelCount != this.channelCount) {
+            frame = Arrays.copyOf(frame, channelCount);
+            sent = new byte[channelCount];
+            this.channelCount = channelCount;
+            sentAny = false;
+        }
+    }
+
+    void setLevel(int channel, int level) {
+        frame[channel] = (byte) level;
+    }
+
+    // Sends the frame if it differs from the last one; returns true if it was written
+    boolean flush() {
+        ILightingDriver current = drivers.get();
+        if (current != driver) {
+            System.out.println("[LightConsumer] Sending light frames to the " + current.getName() + " driver.");
+            driver = current;
+            sentAny = false;
+        }
+        boolean changed = !sentAny || Arrays.mismatch(frame, sent) >= 0;
+        long buildNanos = System.nanoTime() - frameStart;
+        totalBuildNanos += buildNanos;
+        maxBuildNanos = Math.max(maxBuildNanos, buildNanos);
+        if (!changed) {
+            framesSuppressed++;
+            return false;
+        }
+        driver.writeFrame(++sequence, frame, channelCount);
+        System.arraycopy(frame, 0, sent, 0, channelCount);
+        sentAny = true;
+        framesSent++;
+        return true;
+    }
+
+    String describeMetrics() {
+        long frames = framesSent + framesSuppressed;
+        return driver.getName() + " driver: " + framesSent + " frames sent, " + framesSuppressed + " unchanged frames skipped"
+                + (frames > 0 ? String.format(", frame build %.1f µs average, %.1f µs max", totalBuildNanos / 1000.0 / frames,
+                        maxBuildNanos / 1000.0) : "");
+    }
+}
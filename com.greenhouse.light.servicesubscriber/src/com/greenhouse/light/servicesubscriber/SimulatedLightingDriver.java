@@ -0,0 +1,36 @@
+package com.greenhouse.light.servicesubscriber;
+
+// Stands in for the fixture bus: keeps the last frame and logs a one-line summary per frame
+class SimulatedLightingDriver implements ILightingDriver {
+    private byte[] fixtures = new byte[0];
+    private long frames;
+
+    @Override
+    public String getName() {
+        return "simulated";
+    }
+
+    @Override
+    public void writeFrame(long sequence, byte[] levels, int channelCount) {
+        if (fixtures.length != channelCount) {
+            fixtures = new byte[channelCount];
+        }
+        int on = 0;
+        for (int channel = 0; channel < channelCount; channel++) {
+            fixtures[channel] = levels[channel];
+            if (levels[channel] != 0) {
+                on++;
+            }
+        }
+        frames++;
+        System.out.println("[LightDriver] Frame " + sequence + ": " + channelCount + " channels, " + on + " fixtures lit");
+    }
+
+    int getLevel(int channel) {
+        return fixtures[channel] & 0xFF;
+    }
+
+    long getFrameCount() {
+        return frames;
+    }
+}
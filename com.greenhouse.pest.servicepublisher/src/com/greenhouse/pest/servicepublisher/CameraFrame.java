@@ -0,0 +1,20 @@
+package com.greenhouse.pest.servicepublisher;
+
+// One camera image travelling through the frame pipeline. The analysis stage fills in the
+// detected pest and drops the image data, so frames waiting to be published stay small.
+final class CameraFrame {
+    final int zone;
+    final int camera;
+    final long captureTime;
+    byte[] data; // binary PGM (P5) image
+    long ingestNanos;
+    int pest = -1;
+    double confidence;
+
+    CameraFrame(int zone, int camera, long captureTime, byte[] data) {
+        this.zone = zone;
+        this.camera = camera;
+        this.captureTime = captureTime;
+        this.data = data;
+    }
+}
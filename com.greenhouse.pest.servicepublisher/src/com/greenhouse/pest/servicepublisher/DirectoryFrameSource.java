@@ -0,0 +1,175 @@
+package com.greenhouse.pest.servicepublisher;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.greenhouse.zoneregistry.ZoneRegistry;
+
+// Frames dropped into a local directory by the camera gateways, named <zone>_Camera-<n>_<epochMillis>.pgm.
+// Files are read in capture-time order and never modified. Once read, a frame is moved into the
+// processed/ subdirectory (or deleted), and files that are not frames go to rejected/, so each scan only
+// lists what arrived since and memory does not grow with the directory's history. Each camera keeps its
+// own watermark, the capture time of the last frame read from it; a frame arriving with a capture time at
+// or below its camera's watermark is late and rejected as well.
+final class DirectoryFrameSource implements FrameSource {
+    private static final long RESCAN_MILLIS = 1000;
+    // Files taken per scan; a directory with a large backlog is worked through in slices
+    private static final int SCAN_BATCH = 1024;
+    private static final Comparator<Pending> CAPTURE_ORDER = Comparator
+            .<Pending>comparingLong(pending -> pending.frame.captureTime)
+            .thenComparingInt(pending -> pending.frame.zone)
+            .thenComparingInt(pending -> pending.frame.camera);
+
+    private final Path directory;
+    private final ZoneRegistry zones;
+    private final int camerasPerZone;
+    // Capture time of the last frame read, per zone * camerasPerZone + camera
+    private final long[] lastCapture;
+    private final List<Pending> pending = new ArrayList<>();
+    private final Path processedDirectory;
+    private final Path rejectedDirectory;
+    private final boolean deleteProcessed;
+    private boolean directoriesCreated;
+    private volatile long rejected;
+    private volatile long moveFailures;
+
+    private static final class Pending {
+        final Path file;
+        final CameraFrame frame;
+
+        Pending(Path file, CameraFrame frame) {
+            this.file = file;
+            this.frame = frame;
+        }
+    }
+
+    DirectoryFrameSource(Path directory, ZoneRegistry zones, int camerasPerZone, boolean deleteProcessed) {
+        this.directory = directory;
+        this.processedDirectory = directory.resolve("processed");
+        this.rejectedDirectory = directory.resolve("rejected");
+        this.deleteProcessed = deleteProcessed;
+        this.zones = zones;
+        this.camerasPerZone = camerasPerZone;
+        lastCapture = new long[zones.getZoneCount() * camerasPerZone];
+        Arrays.fill(lastCapture, Long.MIN_VALUE);
+    }
+
+    @Override
+    public CameraFrame next() throws IOException, InterruptedException {
+        while (pending.isEmpty()) {
+            scan();
+            if (pending.isEmpty()) {
+                Thread.sleep(RESCAN_MILLIS);
+            }
+        }
+        Pending next = pending.remove(pending.size() - 1);
+        CameraFrame frame = next.frame;
+        lastCapture[frame.zone * camerasPerZone + frame.camera] = frame.captureTime;
+        frame.data = Files.readAllBytes(next.file);
+        if (deleteProcessed) {
+            remove(next.file);
+        } else {
+            moveInto(processedDirectory, next.file);
+        }
+        return frame;
+    }
+
+    private void scan() throws IOException {
+        if (!directoriesCreated) {
+            Files.createDirectories(processedDirectory);
+            Files.createDirectories(rejectedDirectory);
+            directoriesCreated = true;
+        }
+        // Keep the SCAN_BATCH earliest frames past their camera's watermark; the heap's head is the latest kept
+        PriorityQueue<Pending> earliest = new PriorityQueue<>(CAPTURE_ORDER.reversed());
+        List<Path> rejects = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.pgm")) {
+            for (Path file : files) {
+                CameraFrame frame = parseName(file.getFileName().toString());
+                if (frame == null || frame.captureTime <= lastCapture[frame.zone * camerasPerZone + frame.camera]) {
+                    rejects.add(file);
+                    continue;
+                }
+                earliest.add(new Pending(file, frame));
+                if (earliest.size() > SCAN_BATCH) {
+                    earliest.poll();
+                }
+            }
+        }
+        // Moved after the listing, so the directory is not changed while it is being read
+        for (Path file : rejects) {
+            moveInto(rejectedDirectory, file);
+            rejected++;
+        }
+        pending.addAll(earliest);
+        // Latest frame first, so the next file to read is removed from the end
+        pending.sort(CAPTURE_ORDER.reversed());
+    }
+
+    // A file that cannot be moved stays where it is; the watermark keeps it from being read twice
+    private void moveInto(Path target, Path file) {
+        try {
+            Files.move(file, target.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            reportMoveFailure(file, e);
+        }
+    }
+
+    private void remove(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            reportMoveFailure(file, e);
+        }
+    }
+
+    private void reportMoveFailure(Path file, IOException e) {
+        if (moveFailures++ == 0) {
+            System.err.println("[PestPipeline] Cannot clear " + file + " from the frame directory: " + e.getMessage());
+        }
+    }
+
+    private CameraFrame parseName(String name) {
+        int first = name.indexOf('_');
+        int second = name.indexOf('_', first + 1);
+        int dot = name.lastIndexOf('.');
+        if (first < 0 || second < 0 || dot < second) {
+            return null;
+        }
+        int zone = zones.getZoneId(name.substring(0, first));
+        String camera = name.substring(first + 1, second);
+        if (zone < 0 || !camera.startsWith("Camera-")) {
+            return null;
+        }
+        try {
+            int cameraIndex = Integer.parseInt(camera.substring("Camera-".length())) - 1;
+            long captureTime = Long.parseLong(name.substring(second + 1, dot));
+            if (cameraIndex < 0 || cameraIndex >= camerasPerZone) {
+                return null;
+            }
+            return new CameraFrame(zone, cameraIndex, captureTime, null);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isLive() {
+        return false;
+    }
+
+    @Override
+    public String describe() {
+        return "frames from " + directory
+                + (rejected > 0 ? " (" + rejected + " unrecognised or late files rejected)" : "")
+                + (moveFailures > 0 ? " (" + moveFailures + " files could not be cleared)" : "");
+    }
+}
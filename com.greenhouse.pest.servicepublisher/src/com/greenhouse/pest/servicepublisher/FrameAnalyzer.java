@@ -0,0 +1,78 @@
+package com.greenhouse.pest.servicepublisher;
+
+// Decodes a binary PGM frame and scores it for pests. The scoring is a dark-spot detector: pixels
+// well below the foliage grey are counted, their average grey level identifies the pest and the
+// spot's size sets the confidence. Stateless, so every analysis worker shares one instance.
+final class FrameAnalyzer {
+    // Pixels darker than this are pest candidates; foliage sits around 170-200
+    private static final int DARK_LEVEL = 140;
+    // Smaller spots are sensor noise or debris
+    private static final int MIN_SPOT_PIXELS = 12;
+    private static final int FIRST_PEST_LEVEL = 20;
+    private static final int PEST_LEVEL_STEP = 5;
+
+    // Grey level a pest shows up with
+    static int spotLevel(int pest) {
+        return FIRST_PEST_LEVEL + pest * PEST_LEVEL_STEP;
+    }
+
+    // Fills in frame.pest and frame.confidence when the frame shows a pest; returns false for
+    // frames that are not a readable 8-bit PGM image
+    boolean analyze(CameraFrame frame) {
+        byte[] data = frame.data;
+        int[] header = new int[3]; // width, height, max grey
+        int offset = parseHeader(data, header);
+        if (offset < 0 || header[2] > 255 || data.length - offset < (long) header[0] * header[1]) {
+            return false;
+        }
+
+        int end = offset + header[0] * header[1];
+        int dark = 0;
+        long darkSum = 0;
+        for (int i = offset; i < end; i++) {
+            int level = data[i] & 0xFF;
+            if (level < DARK_LEVEL) {
+                dark++;
+                darkSum += level;
+            }
+        }
+        if (dark >= MIN_SPOT_PIXELS) {
+            int pest = Math.round((float) (darkSum / (double) dark - FIRST_PEST_LEVEL) / PEST_LEVEL_STEP);
+            frame.pest = Math.max(0, Math.min(PestType.count() - 1, pest));
+            frame.confidence = Math.min(0.99, 0.4 + dark / 250.0);
+        }
+        return true;
+    }
+
+    // Parses "P5 <width> <height> <max>" with whitespace and # comments; returns the pixel offset or -1
+    private static int parseHeader(byte[] data, int[] values) {
+        if (data.length < 2 || data[0] != 'P' || data[1] != '5') {
+            return -1;
+        }
+        int i = 2;
+        for (int field = 0; field < values.length; field++) {
+            // Skip whitespace and comments
+            while (i < data.length && (Character.isWhitespace(data[i]) || data[i] == '#')) {
+                if (data[i] == '#') {
+                    while (i < data.length && data[i] != '\n') {
+                        i++;
+                    }
+                } else {
+                    i++;
+                }
+            }
+            int value = 0;
+            int digits = 0;
+            while (i < data.length && data[i] >= '0' && data[i] <= '9' && digits < 9) {
+                value = value * 10 + (data[i++] - '0');
+                digits++;
+            }
+            if (digits == 0) {
+                return -1;
+            }
+            values[field] = value;
+        }
+        // Exactly one whitespace byte separates the header from the pixels
+        return i < data.length && Character.isWhitespace(data[i]) ? i + 1 : -1;
+    }
+}
@@ -0,0 +1,163 @@
+package com.greenhouse.pest.servicepublisher;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Staged camera-frame analysis: one thread ingests frames from the source, a pool of workers decodes
+// and scores them, and one thread turns the scores into published detections.
+// The stages are joined by bounded queues, so memory stays fixed however far behind the workers fall:
+// live cameras drop frames when the analysis queue is full, stored frames wait for room.
+final class FramePipeline {
+    private static final int QUEUE_SIZE = Integer.getInteger("greenhouse.pest.pipeline.queueSize", 256);
+    private static final int WORKERS = Integer.getInteger("greenhouse.pest.pipeline.workers",
+            Runtime.getRuntime().availableProcessors());
+    // Repeat sightings of the same pest in the same zone within this time are one detection
+    private static final long COOLDOWN_MILLIS = Long.getLong("greenhouse.pest.pipeline.cooldownMs", 60000);
+    private static final long STATS_MILLIS = Long.getLong("greenhouse.pest.pipeline.statsMs", 60000);
+
+    private final FrameSource source;
+    private final Consumer<CameraFrame> sink;
+    private final FrameAnalyzer analyzer = new FrameAnalyzer();
+    private final BlockingQueue<CameraFrame> frames = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final BlockingQueue<CameraFrame> detections = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final PipelineStageStats ingestStats = new PipelineStageStats("ingest");
+    private final PipelineStageStats analyzeStats = new PipelineStageStats("analyze");
+    private final PipelineStageStats publishStats = new PipelineStageStats("publish");
+
+    // Capture time of the last published detection per zone and pest; only used by the publish thread
+    private final long[] lastPublished;
+    private volatile long repeatsSuppressed;
+    private volatile long published;
+
+    private ExecutorService threads;
+    private volatile boolean running;
+    private long startNanos;
+
+    FramePipeline(FrameSource source, int zoneCount, Consumer<CameraFrame> sink) {
+        this.source = source;
+        this.sink = sink;
+        this.lastPublished = new long[zoneCount * PestType.count()];
+        Arrays.fill(lastPublished, Long.MIN_VALUE / 4);
+    }
+
+    void start() {
+        running = true;
+        startNanos = System.nanoTime();
+        threads = Executors.newFixedThreadPool(WORKERS + 2);
+        threads.execute(this::ingest);
+        for (int i = 0; i < WORKERS; i++) {
+            threads.execute(this::analyze);
+        }
+        threads.execute(this::publish);
+        System.out.println("[PestPipeline] Analysing " + source.describe() + " with " + WORKERS + " workers, queues of "
+                + QUEUE_SIZE + " frames");
+    }
+
+    private void ingest() {
+        try {
+            while (running) {
+                CameraFrame frame = source.next();
+                if (frame == null) {
+                    System.out.println("[PestPipeline] No more frames from " + source.describe());
+                    return;
+                }
+                frame.ingestNanos = System.nanoTime();
+                if (source.isLive()) {
+                    if (!frames.offer(frame)) {
+                        ingestStats.drop();
+                        continue;
+                    }
+                } else {
+                    // Backpressure: reading stops until the workers make room
+                    frames.put(frame);
+                }
+                ingestStats.record(System.nanoTime() - frame.ingestNanos);
+            }
+        } catch (IOException e) {
+            System.err.println("[PestPipeline] ERROR: Cannot read frames: " + e.getMessage());
+        } catch (InterruptedException e) {
+            // Stopping
+        }
+    }
+
+    private void analyze() {
+        try {
+            while (running) {
+                CameraFrame frame = frames.take();
+                boolean readable = analyzer.analyze(frame);
+                frame.data = null;
+                if (!readable) {
+                    analyzeStats.drop();
+                    continue;
+                }
+                analyzeStats.record(System.nanoTime() - frame.ingestNanos);
+                if (frame.pest < 0) {
+                    continue;
+                }
+                if (source.isLive()) {
+                    if (!detections.offer(frame)) {
+                        publishStats.drop();
+                    }
+                } else {
+                    detections.put(frame);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopping
+        }
+    }
+
+    private void publish() {
+        long nextStats = System.currentTimeMillis() + STATS_MILLIS;
+        try {
+            while (running) {
+                CameraFrame frame = detections.poll(1, TimeUnit.SECONDS);
+                if (frame != null) {
+                    int key = frame.zone * PestType.count() + frame.pest;
+                    if (Math.abs(frame.captureTime - lastPublished[key]) < COOLDOWN_MILLIS) {
+                        repeatsSuppressed++;
+                    } else {
+                        lastPublished[key] = frame.captureTime;
+                        sink.accept(frame);
+                        published++;
+                    }
+                    publishStats.record(System.nanoTime() - frame.ingestNanos);
+                }
+                if (System.currentTimeMillis() >= nextStats) {
+                    nextStats += STATS_MILLIS;
+                    System.out.println(describeMetrics());
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopping
+        }
+    }
+
+    void stop() {
+        running = false;
+        if (threads == null) {
+            return;
+        }
+        threads.shutdownNow();
+        try {
+            threads.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println(describeMetrics());
+    }
+
+    String describeMetrics() {
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+        return "[PestPipeline] " + ingestStats.describe(elapsed, frames.size(), QUEUE_SIZE) + "\n"
+                + "[PestPipeline] " + analyzeStats.describe(elapsed, detections.size(), QUEUE_SIZE) + "\n"
+                + "[PestPipeline] " + publishStats.describe(elapsed, 0, 0) + "; " + published + " detections published, "
+                + repeatsSuppressed + " repeat sightings merged";
+    }
+}
@@ -0,0 +1,15 @@
+package com.greenhouse.pest.servicepublisher;
+
+import java.io.IOException;
+
+// Where the frame pipeline gets its images from
+interface FrameSource {
+    // Next frame, waiting until one is available; null once the source is exhausted
+    CameraFrame next() throws IOException, InterruptedException;
+
+    // Live cameras keep producing, so their frames are dropped when the pipeline is full;
+    // stored frames are waited for instead
+    boolean isLive();
+
+    String describe();
+}
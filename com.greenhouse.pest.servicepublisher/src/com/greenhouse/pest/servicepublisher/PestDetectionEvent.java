@@ -0,0 +1,67 @@
+package com.greenhouse.pest.servicepublisher;
+
+// One camera detection. Immutable; sequence numbers increase by one per detection, so a
+// consumer that keeps the last sequence it saw can fetch exactly the detections it missed.
+public final class PestDetectionEvent {
+    private final long sequence;
+    private final long timestamp;
+    private final int zone;
+    private final String zoneId;
+    private final String crop;
+    private final String cameraId;
+    private final PestType pest;
+    private final double confidence;
+
+    public PestDetectionEvent(long sequence, long timestamp, int zone, String zoneId, String crop, String cameraId,
+            PestType pest, double confidence) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.zone = zone;
+        this.zoneId = zoneId;
+        this.crop = crop;
+        this.cameraId = cameraId;
+        this.pest = pest;
+        this.confidence = confidence;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    // Detection time in epoch milliseconds
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // Dense zone id from the zone registry
+    public int getZone() {
+        return zone;
+    }
+
+    public String getZoneId() {
+        return zoneId;
+    }
+
+    // Crop grown in the zone, or null if the zone has no crop profile
+    public String getCrop() {
+        return crop;
+    }
+
+    public String getCameraId() {
+        return cameraId;
+    }
+
+    public PestType getPest() {
+        return pest;
+    }
+
+    // Classifier confidence, 0 to 1
+    public double getConfidence() {
+        return confidence;
+    }
+
+    @Override
+    public String toString() {
+        return PestEventFormatter.formatLine(this);
+    }
+}
@@ -0,0 +1,45 @@
+package com.greenhouse.pest.servicepublisher;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+// Text rendering of detection events, for consoles and reports. Consumers that only act on
+// detections never need it.
+public final class PestEventFormatter {
+    // Detection time up to the second
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private PestEventFormatter() {
+    }
+
+    public static String formatTimestamp(long timestampMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestampMillis), ZoneId.systemDefault()).format(TIMESTAMP_FORMAT);
+    }
+
+    // Multi-line banner, as printed by the camera console
+    public static String formatReport(PestDetectionEvent event) {
+        // Use a clean console log pattern with nice spacing
+        return String.format(
+            "==============================================\n" +
+            "           Pest Detection Report\n" +
+            "==============================================\n" +
+            "  Timestamp        : %s\n" +
+            "  Greenhouse Zone  : %s\n" +
+            "  Crop             : %s\n" +
+            "  Camera ID        : %s\n" +
+            "  Detected Pest    : %s\n" +
+            "  Confidence       : %.0f%%\n" +
+            "==============================================\n",
+            formatTimestamp(event.getTimestamp()), event.getZoneId(), event.getCrop(), event.getCameraId(),
+            event.getPest().getDisplayName(), event.getConfidence() * 100);
+    }
+
+    // Single line, for logs and the action reporter
+    public static String formatLine(PestDetectionEvent event) {
+        return String.format("%s %s (%s) %s: %s, %.0f%% confidence", formatTimestamp(event.getTimestamp()),
+                event.getZoneId(), event.getCrop(), event.getCameraId(), event.getPest().getDisplayName(),
+                event.getConfidence() * 100);
+    }
+}
@@ -1,5 +1,15 @@
 package com.greenhouse.pest.servicepublisher;
 
+import java.util.List;
+
 public interface PestServicePublish {
+    // Latest detection rendered as a text report, or "No pests detected."
     String detectPests();
+
+    // Detections with a sequence number above afterSequence, oldest first; empty if there are none.
+    // Only the most recent detections are kept, so a consumer that falls far behind sees a gap in sequences.
+    List<PestDetectionEvent> getDetectionsSince(long afterSequence);
+
+    // Sequence number of the latest detection, 0 before the first one
+    long getLatestSequence();
 }
@@ -1,126 +1,232 @@
 package com.greenhouse.pest.servicepublisher;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import com.greenhouse.common.sensorlog.SensorChannel;
+import com.greenhouse.common.sensorlog.SensorRecorder;
+import com.greenhouse.common.sensorlog.SensorReplay;
+import com.greenhouse.common.sensorlog.SensorStreamConfig;
+import com.greenhouse.zoneregistry.CropProfile;
+import com.greenhouse.zoneregistry.ZoneRegistry;
+
 public class PestServicePublishImpl implements PestServicePublish {
 
     private ExecutorService executorService;
     private volatile boolean running = true;
-    private String latestPestStatus = "No pests detected.";
-    private Random random = new Random();
+    // Most recent detections, by sequence number modulo the buffer size
+    private static final int EVENT_BUFFER = Integer.getInteger("greenhouse.pest.eventBuffer", 1024);
+    private final PestDetectionEvent[] recentEvents = new PestDetectionEvent[EVENT_BUFFER];
+    private volatile PestDetectionEvent latestEvent;
+    private long latestSequence;
+    // Live, record or replay, plus seed and update interval for repeatable runs
+    private final SensorStreamConfig streamConfig = SensorStreamConfig.forSource("pest");
+    private Random random = streamConfig.newRandom();
+    private SensorRecorder recorder;
 
     // Greenhouse zones with crop types
-    private static final Map<String, String> GREENHOUSE_ZONES = new HashMap<>();
-    
-    // Camera IDs for each zone
-    private static final Map<String, String[]> CAMERA_IDS = new HashMap<>();
-
-    // Sample pest issues
-    private static final String[] PESTS = {
-        "Aphids", "Whiteflies", "Spider Mites", "Mealybugs", "Leafhoppers", 
-        "Thrips", "Scale insects", "Ants", "Caterpillars", "Root-Knot Nematodes",
-        "Flea Beetles", "Cutworms", "Japanese Beetles", "Leaf Miners", "Squash Bugs",
-        "Colorado Potato Beetles", "White Grubs", "Stink Bugs", "Red Palm Weevil larvae", "Tomato Hornworms"
-    };
-
-    static {
-        GREENHOUSE_ZONES.put("Zone-A", "Tomatoes");
-        GREENHOUSE_ZONES.put("Zone-B", "Cucumbers");
-        GREENHOUSE_ZONES.put("Zone-C", "Peppers");
-        GREENHOUSE_ZONES.put("Zone-D", "Lettuce");
-        GREENHOUSE_ZONES.put("Zone-E", "Herbs");
-        
-        // Assigning 5 camera IDs for each zone
-        CAMERA_IDS.put("Zone-A", new String[]{"Camera-1", "Camera-2", "Camera-3", "Camera-4", "Camera-5"});
-        CAMERA_IDS.put("Zone-B", new String[]{"Camera-1", "Camera-2", "Camera-3", "Camera-4", "Camera-5"});
-        CAMERA_IDS.put("Zone-C", new String[]{"Camera-1", "Camera-2", "Camera-3", "Camera-4", "Camera-5"});
-        CAMERA_IDS.put("Zone-D", new String[]{"Camera-1", "Camera-2", "Camera-3", "Camera-4", "Camera-5"});
-        CAMERA_IDS.put("Zone-E", new String[]{"Camera-1", "Camera-2", "Camera-3", "Camera-4", "Camera-5"});
-    }
+    private static final ZoneRegistry ZONES = ZoneRegistry.getDefault();
+
+    // Every zone has the same five cameras
+    private static final String[] CAMERA_IDS = {"Camera-1", "Camera-2", "Camera-3", "Camera-4", "Camera-5"};
+
+    // Camera frames to analyse: unset keeps the single simulated detection per interval,
+    // "simulated" runs simulated cameras through the frame pipeline, anything else is a frame directory
+    private static final String FRAME_SOURCE = System.getProperty("greenhouse.pest.frames");
+    private static final int CAMERAS_PER_ZONE = Integer.getInteger("greenhouse.pest.camerasPerZone", CAMERA_IDS.length);
+    // Frames read from a directory are moved to its processed/ subdirectory, or deleted when this is set
+    private static final boolean DELETE_PROCESSED_FRAMES = Boolean.getBoolean("greenhouse.pest.frames.deleteProcessed");
+    private static final double CAMERA_FPS = Double.parseDouble(System.getProperty("greenhouse.pest.camera.fps", "1.0"));
+    private static final double PEST_PROBABILITY = Double.parseDouble(
+            System.getProperty("greenhouse.pest.camera.pestProbability", "0.002"));
+    private FramePipeline pipeline;
 
     public void start() {
-        executorService = Executors.newSingleThreadExecutor();
-        executorService.execute(this::updatePestData);
+        if (streamConfig.getMode() == SensorStreamConfig.Mode.REPLAY) {
+            executorService = Executors.newSingleThreadExecutor();
+            executorService.execute(this::replayPestData);
+        } else {
+            if (streamConfig.getMode() == SensorStreamConfig.Mode.RECORD) {
+                try {
+                    recorder = streamConfig.openRecorder();
+                } catch (IOException e) {
+                    System.err.println("[PestDetectionCamera] ERROR: Cannot record pest data: " + e.getMessage());
+                }
+            }
+            if (FRAME_SOURCE != null) {
+                pipeline = new FramePipeline(createFrameSource(), ZONES.getZoneCount(), this::publishFrameDetection);
+                pipeline.start();
+            } else {
+                // The pipeline has its own threads; this one is only needed for the simple generator
+                executorService = Executors.newSingleThreadExecutor();
+                executorService.execute(this::updatePestData);
+            }
+        }
+        System.out.println("[PestDetectionCamera] Pest data: " + streamConfig);
     }
 
     private void updatePestData() {
+        String[] zones = getZoneOrder();
         while (running) {
             try {
-                String zone = getRandomZone();
-                String crop = GREENHOUSE_ZONES.get(zone);
-                String pest = getRandomPest();
-                String cameraID = getRandomCameraID(zone);
-                String timestamp = getFormattedTimestamp();
-
-                // Formatting the output in a more readable console pattern
-                latestPestStatus = formatPestStatus(zone, crop, cameraID, pest, timestamp);
-                
-                // Pass the formatted pest status
-                notifySubscribers();
-
-                Thread.sleep(30000);
+                int zoneIndex = random.nextInt(zones.length);
+                String zone = zones[zoneIndex];
+                int cameraIndex = random.nextInt(CAMERA_IDS.length);
+                int pestIndex = random.nextInt(PestType.count());
+                double confidence = 0.5 + random.nextDouble() * 0.5;
+                long now = System.currentTimeMillis();
+
+                publishDetection(zoneIndex, zone, CAMERA_IDS[cameraIndex], PestType.fromIndex(pestIndex), confidence, now);
+                recordDetection(now, zoneIndex, cameraIndex, pestIndex, confidence);
+
+                Thread.sleep(streamConfig.getIntervalMillis());
             } catch (InterruptedException e) {
-                System.err.println("[PestDetectionCamera] ERROR: Interrupted while generating pest data.");
+                if (running) {
+                    System.err.println("[PestDetectionCamera] ERROR: Interrupted while generating pest data.");
+                }
                 break;
             }
         }
+        closeRecorder();
+    }
+
+    private void replayPestData() {
+        String[] zones = getZoneOrder();
+        int[] staged = new int[3]; // zone, camera, pest of the replayed cycle
+        double[] stagedConfidence = {1.0}; // recordings made before confidences were recorded replay as certain
+        try {
+            long cycles = streamConfig.openReplay().run(new SensorReplay.Handler() {
+                @Override
+                public void reading(long timestamp, int zone, int channel, double value) {
+                    staged[0] = zone;
+                    if (channel == SensorChannel.PEST_CAMERA) {
+                        staged[1] = (int) value;
+                    } else if (channel == SensorChannel.PEST_TYPE) {
+                        staged[2] = (int) value;
+                    } else if (channel == SensorChannel.PEST_CONFIDENCE) {
+                        stagedConfidence[0] = value;
+                    }
+                }
+
+                @Override
+                public void tick(long timestamp) {
+                    if (staged[0] < 0 || staged[0] >= zones.length) {
+                        return;
+                    }
+                    String zone = zones[staged[0]];
+                    publishDetection(staged[0], zone, getCameraId(Math.floorMod(staged[1], CAMERAS_PER_ZONE)),
+                            PestType.fromIndex(staged[2]), stagedConfidence[0], timestamp);
+                    stagedConfidence[0] = 1.0;
+                }
+            });
+            System.out.println("[PestDetectionCamera] Replay finished after " + cycles + " update cycles.");
+        } catch (IOException e) {
+            System.err.println("[PestDetectionCamera] ERROR: Replay failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            if (running) {
+                System.err.println("[PestDetectionCamera] ERROR: Interrupted while replaying pest data.");
+            }
+        }
+    }
+
+    private FrameSource createFrameSource() {
+        if (FRAME_SOURCE.equals("simulated")) {
+            return new SimulatedCameraSource(ZONES.getZoneCount(), CAMERAS_PER_ZONE, CAMERA_FPS, PEST_PROBABILITY, random);
+        }
+        return new DirectoryFrameSource(Paths.get(FRAME_SOURCE), ZONES, CAMERAS_PER_ZONE, DELETE_PROCESSED_FRAMES);
     }
 
-    private void notifySubscribers() {
-        // Placeholder for notifying subscribers
-        //System.out.println(latestPestStatus); // Example of passing the formatted output
+    // Called by the pipeline's publish thread for every new (not repeated) sighting
+    private void publishFrameDetection(CameraFrame frame) {
+        publishDetection(frame.zone, ZONES.getZoneName(frame.zone), getCameraId(frame.camera), PestType.fromIndex(frame.pest),
+                frame.confidence, frame.captureTime);
+        recordDetection(frame.captureTime, frame.zone, frame.camera, frame.pest, frame.confidence);
     }
 
-    private String getRandomZone() {
-        Object[] zones = GREENHOUSE_ZONES.keySet().toArray();
-        return (String) zones[random.nextInt(zones.length)];
+    private static String getCameraId(int camera) {
+        return camera < CAMERA_IDS.length ? CAMERA_IDS[camera] : "Camera-" + (camera + 1);
     }
 
-    private String getRandomCameraID(String zone) {
-        String[] cameras = CAMERA_IDS.get(zone);
-        return cameras[random.nextInt(cameras.length)];
+    private synchronized void publishDetection(int zoneIndex, String zone, String cameraID, PestType pest,
+            double confidence, long timestampMillis) {
+        CropProfile profile = ZONES.getCropProfile(zoneIndex);
+        String crop = profile != null ? profile.getName() : null;
+        PestDetectionEvent event = new PestDetectionEvent(++latestSequence, timestampMillis, zoneIndex, zone, crop,
+                cameraID, pest, confidence);
+        recentEvents[(int) (event.getSequence() % EVENT_BUFFER)] = event;
+        latestEvent = event;
     }
 
-    private String getRandomPest() {
-        return PESTS[random.nextInt(PESTS.length)];
+    private void recordDetection(long timestamp, int zoneIndex, int cameraIndex, int pestIndex, double confidence) {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.record(timestamp, zoneIndex, SensorChannel.PEST_CAMERA, cameraIndex);
+            recorder.record(timestamp, zoneIndex, SensorChannel.PEST_TYPE, pestIndex);
+            recorder.record(timestamp, zoneIndex, SensorChannel.PEST_CONFIDENCE, confidence);
+            recorder.endTick(timestamp);
+        } catch (IOException e) {
+            System.err.println("[PestDetectionCamera] ERROR: Recording stopped: " + e.getMessage());
+            closeRecorder();
+        }
     }
 
-    private String getFormattedTimestamp() {
-        // Get the current timestamp and format it up to the second
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        return LocalDateTime.now().format(formatter);
+    private void closeRecorder() {
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                // Nothing more to save
+            }
+            recorder = null;
+        }
     }
 
-    private String formatPestStatus(String zone, String crop, String cameraID, String pest, String timestamp) {
-        // Use a clean console log pattern with nice spacing
-        return String.format(
-            "==============================================\n" +
-            "           Pest Detection Report\n" +
-            "==============================================\n" +
-            "  Timestamp        : %s\n" +
-            "  Greenhouse Zone  : %s\n" +
-            "  Crop             : %s\n" +
-            "  Camera ID        : %s\n" +
-            "  Detected Pest    : %s\n" +
-            "==============================================\n",
-            timestamp, zone, crop, cameraID, pest);
+    // Registry order, used as the zone index in recordings
+    private static String[] getZoneOrder() {
+        return ZONES.getZoneNames();
     }
 
     public void stop() {
         running = false;
         if (executorService != null) {
-            executorService.shutdown();
+            executorService.shutdownNow(); // wake the generator so the recording is closed now
+        }
+        if (pipeline != null) {
+            pipeline.stop();
+            closeRecorder();
         }
     }
 
     @Override
     public String detectPests() {
-        return latestPestStatus;
+        // Text is only rendered for callers that ask for it
+        PestDetectionEvent event = latestEvent;
+        return event != null ? PestEventFormatter.formatReport(event) : "No pests detected.";
+    }
+
+    @Override
+    public synchronized List<PestDetectionEvent> getDetectionsSince(long afterSequence) {
+        long from = Math.max(Math.max(afterSequence, 0) + 1, latestSequence - EVENT_BUFFER + 1);
+        if (from > latestSequence) {
+            return Collections.emptyList();
+        }
+        List<PestDetectionEvent> events = new ArrayList<>((int) (latestSequence - from + 1));
+        for (long sequence = from; sequence <= latestSequence; sequence++) {
+            events.add(recentEvents[(int) (sequence % EVENT_BUFFER)]);
+        }
+        return events;
+    }
+
+    @Override
+    public synchronized long getLatestSequence() {
+        return latestSequence;
     }
 }
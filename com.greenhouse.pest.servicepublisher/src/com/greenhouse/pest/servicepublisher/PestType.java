@@ -0,0 +1,47 @@
+package com.greenhouse.pest.servicepublisher;
+
+// Pests the cameras can recognise. The ordinal is the pest index stored in sensor recordings,
+// so new pests go at the end.
+public enum PestType {
+    APHIDS("Aphids"),
+    WHITEFLIES("Whiteflies"),
+    SPIDER_MITES("Spider Mites"),
+    MEALYBUGS("Mealybugs"),
+    LEAFHOPPERS("Leafhoppers"),
+    THRIPS("Thrips"),
+    SCALE_INSECTS("Scale insects"),
+    ANTS("Ants"),
+    CATERPILLARS("Caterpillars"),
+    ROOT_KNOT_NEMATODES("Root-Knot Nematodes"),
+    FLEA_BEETLES("Flea Beetles"),
+    CUTWORMS("Cutworms"),
+    JAPANESE_BEETLES("Japanese Beetles"),
+    LEAF_MINERS("Leaf Miners"),
+    SQUASH_BUGS("Squash Bugs"),
+    COLORADO_POTATO_BEETLES("Colorado Potato Beetles"),
+    WHITE_GRUBS("White Grubs"),
+    STINK_BUGS("Stink Bugs"),
+    RED_PALM_WEEVIL_LARVAE("Red Palm Weevil larvae"),
+    TOMATO_HORNWORMS("Tomato Hornworms");
+
+    private static final PestType[] VALUES = values();
+
+    private final String displayName;
+
+    PestType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    // Pest for a recorded index; out of range indexes wrap around like the old pest table did
+    public static PestType fromIndex(int index) {
+        return VALUES[Math.floorMod(index, VALUES.length)];
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+}
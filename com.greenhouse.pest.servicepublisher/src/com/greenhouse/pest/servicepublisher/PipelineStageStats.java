@@ -0,0 +1,37 @@
+package com.greenhouse.pest.servicepublisher;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Throughput and latency counters of one pipeline stage, updated by all of its threads
+final class PipelineStageStats {
+    private final String name;
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    PipelineStageStats(String name) {
+        this.name = name;
+    }
+
+    void record(long latency) {
+        processed.increment();
+        latencyNanos.add(latency);
+        if (latency > maxLatencyNanos.get()) {
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        }
+    }
+
+    void drop() {
+        dropped.increment();
+    }
+
+    // queued and capacity describe the queue the stage feeds; a capacity of 0 leaves it out
+    String describe(double elapsedSeconds, int queued, int capacity) {
+        long count = processed.sum();
+        return String.format("%s: %d frames (%.1f/s), latency %.2f ms avg, %.2f ms max, %s%d dropped", name, count,
+                elapsedSeconds > 0 ? count / elapsedSeconds : 0.0, count > 0 ? latencyNanos.sum() / 1e6 / count : 0.0,
+                maxLatencyNanos.get() / 1e6, capacity > 0 ? "queue " + queued + "/" + capacity + ", " : "", dropped.sum());
+    }
+}
@@ -0,0 +1,85 @@
+package com.greenhouse.pest.servicepublisher;
+
+import java.util.Random;
+
+// Every camera of every zone producing greyscale frames at a fixed rate. Most frames show bare
+// foliage; a few show a dark spot whose grey level identifies the pest, which FrameAnalyzer picks up.
+final class SimulatedCameraSource implements FrameSource {
+    static final int WIDTH = 160;
+    static final int HEIGHT = 120;
+    private static final byte[] HEADER = ("P5\n" + WIDTH + " " + HEIGHT + "\n255\n").getBytes();
+
+    private final int zoneCount;
+    private final int camerasPerZone;
+    private final long frameIntervalNanos;
+    private final double pestProbability;
+    private final Random random;
+    private final long startNanos = System.nanoTime();
+    private long emitted;
+    private long noise;
+
+    SimulatedCameraSource(int zoneCount, int camerasPerZone, double framesPerSecond, double pestProbability, Random random) {
+        this.zoneCount = zoneCount;
+        this.camerasPerZone = camerasPerZone;
+        // One interval per frame across all cameras, so the combined rate is cameras x fps
+        this.frameIntervalNanos = Math.max(1, (long) (1_000_000_000L / (framesPerSecond * zoneCount * camerasPerZone)));
+        this.pestProbability = pestProbability;
+        this.random = random;
+        this.noise = random.nextLong() | 1;
+    }
+
+    @Override
+    public CameraFrame next() throws InterruptedException {
+        // Paced against the start time, so a slow consumer does not slow the cameras down
+        long due = startNanos + emitted * frameIntervalNanos;
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        }
+        int camera = (int) (emitted % ((long) zoneCount * camerasPerZone));
+        emitted++;
+        return new CameraFrame(camera / camerasPerZone, camera % camerasPerZone, System.currentTimeMillis(), render());
+    }
+
+    private byte[] render() {
+        byte[] image = new byte[HEADER.length + WIDTH * HEIGHT];
+        System.arraycopy(HEADER, 0, image, 0, HEADER.length);
+        // Foliage: grey 170-201 noise from a xorshift generator, far cheaper than Random per pixel
+        long x = noise;
+        for (int i = HEADER.length; i < image.length; i++) {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            image[i] = (byte) (170 + (x & 31));
+        }
+        noise = x;
+
+        if (random.nextDouble() < pestProbability) {
+            int pest = random.nextInt(PestType.count());
+            int radius = 3 + random.nextInt(5);
+            int cx = radius + random.nextInt(WIDTH - 2 * radius);
+            int cy = radius + random.nextInt(HEIGHT - 2 * radius);
+            byte level = (byte) FrameAnalyzer.spotLevel(pest);
+            for (int y = cy - radius; y <= cy + radius; y++) {
+                for (int dx = -radius; dx <= radius; dx++) {
+                    int dy = y - cy;
+                    if (dx * dx + dy * dy <= radius * radius) {
+                        image[HEADER.length + y * WIDTH + cx + dx] = level;
+                    }
+                }
+            }
+        }
+        return image;
+    }
+
+    @Override
+    public boolean isLive() {
+        return true;
+    }
+
+    @Override
+    public String describe() {
+        return "simulated cameras (" + zoneCount * camerasPerZone + " cameras, "
+                + String.format("%.0f", 1e9 / frameIntervalNanos) + " frames/s)";
+    }
+}
@@ -1,33 +1,38 @@
 package com.greenhouse.pest.servicesubscriber;
+import com.greenhouse.common.binding.ServiceBinding;
+import com.greenhouse.pest.servicepublisher.PestDetectionEvent;
 import com.greenhouse.pest.servicepublisher.PestServicePublish;
+import com.greenhouse.pest.servicepublisher.PestType;
+import com.greenhouse.report.ActionCode;
+import com.greenhouse.report.ForwardingReporter;
 import com.greenhouse.report.IGreenhouseReporter;
+import com.greenhouse.zoneregistry.ZoneRegistry;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
-import org.osgi.framework.ServiceReference;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
-public class Activator implements BundleActivator {
-    private ServiceReference<PestServicePublish> pestRef;
-    private ServiceReference<IGreenhouseReporter> reporterRef;
-    private PestServicePublish pestService;
+public class Activator implements BundleActivator, PestIncidentAggregator.Listener {
+    // Bound through trackers; the polling loop reads the current provider instead of looking it up each time
+    private ServiceBinding<PestServicePublish> pestBinding;
+    private ServiceBinding<IGreenhouseReporter> reporterBinding;
     private IGreenhouseReporter reporter;
     private ExecutorService executorService;
     private volatile boolean running = true;
-    private BundleContext context;
+    private PestServicePublish boundService;
+    // Detections below this classifier confidence are logged but not treated
+    private static final double MIN_CONFIDENCE = Double.parseDouble(System.getProperty("greenhouse.pest.minConfidence", "0.7"));
+    private long lastSequence;
+    // Sightings merged into incidents per zone and pest over a sliding window
+    private final PestIncidentAggregator incidents = new PestIncidentAggregator(ZoneRegistry.getDefault().getZoneCount(), this);
     
     @Override
     public void start(BundleContext context) {
-        this.context = context;
-        
-        // First, try to get the reporter service
-        reporterRef = context.getServiceReference(IGreenhouseReporter.class);
-        if (reporterRef != null) {
-            reporter = context.getService(reporterRef);
-            System.out.println("[PestControlSystem] Connected to greenhouse reporter.");
-        } else {
-            System.out.println("[PestControlSystem] Greenhouse reporter not available.");
-        }
+        reporterBinding = ServiceBinding.open(context, IGreenhouseReporter.class);
+        reporter = new ForwardingReporter(reporterBinding);
+        pestBinding = ServiceBinding.open(context, PestServicePublish.class);
         
         executorService = Executors.newSingleThreadExecutor();
         executorService.execute(this::listenForPestData);
@@ -36,66 +41,94 @@ public class Activator implements BundleActivator {
     private void listenForPestData() {
         while (running) {
             try {
-                // Try to connect to the Pest Detection Service
-                pestRef = context.getServiceReference(PestServicePublish.class);
-                if (pestRef == null) {
-                    System.err.println("[PestControlSystem] ERROR: Lost connection to Pest Detection Service. Retrying...");
-                    Thread.sleep(5000);  // Retry every 5 seconds
-                    continue;
-                }
-                pestService = context.getService(pestRef);
+                PestServicePublish pestService = pestBinding.get();
                 if (pestService == null) {
                     System.err.println("[PestControlSystem] ERROR: Pest Detection Service unavailable. Retrying...");
-                    Thread.sleep(5000);  // Retry every 5 seconds
+                    pestBinding.await(5000);  // Wake up as soon as a provider registers
                     continue;
                 }
-                
-                // Fetch the latest pest detection result from the producer
-                String pestStatus = pestService.detectPests();
-                System.out.println(pestStatus);
-                
-                // Record monitoring action
-                if (reporter != null) {
-                    reporter.recordAction("Pest Control", "Monitored pest levels: " + pestStatus);
+                if (pestService != boundService) {
+                    // A restarted provider numbers its detections from the start again
+                    boundService = pestService;
+                    lastSequence = 0;
                 }
                 
-                activateControl(pestStatus);
+                // Fetch every detection since the last batch
+                List<PestDetectionEvent> detections = pestService.getDetectionsSince(lastSequence);
+                if (!detections.isEmpty()) {
+                    long first = detections.get(0).getSequence();
+                    if (first > lastSequence + 1 && lastSequence > 0) {
+                        System.err.println("[PestControlSystem] WARNING: Missed " + (first - lastSequence - 1) + " detections.");
+                    }
+                    lastSequence = detections.get(detections.size() - 1).getSequence();
+                    activateControl(detections);
+                }
+                // Windows follow detection time, so a quiet poll leaves them where the last detection put them
+                incidents.expire();
+                List<PestHotspot> hotspots = incidents.getHotspots(3);
+                if (!hotspots.isEmpty()) {
+                    System.out.println("[PestControlSystem] Hotspots: " + hotspots);
+                }
                 
                 // Wait for 30 seconds before fetching the next update
                 Thread.sleep(30000);
             } catch (InterruptedException e) {
-                System.err.println("[PestControlSystem] ERROR: Interrupted while sleeping.");
+                if (running) {
+                    System.err.println("[PestControlSystem] ERROR: Interrupted while sleeping.");
+                }
                 break;
             }
         }
     }
     
-    private void activateControl(String pestStatus) {
-        if (pestStatus.contains("Detected") || pestStatus.matches(".*\\d+.*")) {
-            System.out.println("🛑 Deploying organic pesticides...");
-            
-            // Report pest control action
-            if (reporter != null) {
-                reporter.recordAction("Pest Control", "Deployed organic pesticides due to pest detection");
+    // Feeds confident detections to the incident aggregator; treatment follows incidents, not sightings
+    private void activateControl(List<PestDetectionEvent> detections) {
+        int uncertain = 0;
+        for (PestDetectionEvent detection : detections) {
+            if (detection.getConfidence() < MIN_CONFIDENCE) {
+                uncertain++;
+                continue;
             }
+            incidents.add(detection);
         }
+        System.out.println("[PestControlSystem] " + detections.size() + " new detections"
+                + (uncertain > 0 ? ", " + uncertain + " below " + Math.round(MIN_CONFIDENCE * 100) + "% confidence" : "")
+                + ".");
+    }
+    
+    @Override
+    public void incidentRaised(String zoneId, PestType pest, int sightings, int cameras) {
+        System.out.println("🛑 Deploying organic pesticides in " + zoneId + " against " + pest.getDisplayName() + " ("
+                + sightings + " sightings from " + cameras + " cameras)...");
+        
+        // Report pest control action
+        reporter.recordEvent(ActionCode.PEST_TREATED, zoneId, pest.getDisplayName(), sightings);
+    }
+    
+    @Override
+    public void incidentCleared(String zoneId, PestType pest) {
+        System.out.println("[PestControlSystem] " + pest.getDisplayName() + " incident in " + zoneId
+                + " cleared: no sightings in the " + incidents.getWindowMillis() / 60000 + " minutes up to the latest detection.");
+        reporter.recordEvent(ActionCode.PEST_CLEARED, zoneId, pest.getDisplayName(), 0);
     }
     
     @Override
     public void stop(BundleContext context) {
         running = false;
         if (executorService != null) {
-            executorService.shutdown();
-        }
-        
-        if (pestRef != null) {
-            context.ungetService(pestRef);
+            executorService.shutdownNow(); // wake the polling thread instead of waiting out its sleep
+            try {
+                // The loop must be gone before its bindings are closed, or it runs one more pass against them
+                executorService.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
         
-        if (reporterRef != null) {
-            context.ungetService(reporterRef);
-        }
+        // Releases the services; the polling loop no longer holds a use count of its own
+        pestBinding.close();
+        reporterBinding.close();
         
-        System.out.println("[PestControlSystem] Stopping...");
+        System.out.println("[PestControlSystem] Stopping (" + incidents.describeMetrics() + ")...");
     }
 }
\ No newline at end of file
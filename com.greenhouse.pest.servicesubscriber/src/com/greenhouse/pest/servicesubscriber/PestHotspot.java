@@ -0,0 +1,19 @@
+package com.greenhouse.pest.servicesubscriber;
+
+// A zone's pest activity in the current window
+final class PestHotspot {
+    final String zoneId;
+    final int sightings;
+    final int incidents;
+
+    PestHotspot(String zoneId, int sightings, int incidents) {
+        this.zoneId = zoneId;
+        this.sightings = sightings;
+        this.incidents = incidents;
+    }
+
+    @Override
+    public String toString() {
+        return zoneId + " (" + sightings + " sightings, " + incidents + " active incidents)";
+    }
+}
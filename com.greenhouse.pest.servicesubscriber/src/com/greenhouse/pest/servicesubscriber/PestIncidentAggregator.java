@@ -0,0 +1,253 @@
+package com.greenhouse.pest.servicesubscriber;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.greenhouse.pest.servicepublisher.PestDetectionEvent;
+import com.greenhouse.pest.servicepublisher.PestType;
+
+// Merges detections into incidents over a sliding time window. Sightings of one pest in one zone,
+// from any of its cameras, count towards the same incident; an incident is raised once the window
+// holds enough sightings and cleared once the window is empty again.
+// Windows are rings of per-bucket counters kept in flat arrays, indexed through an open-addressing
+// table of fixed size, so memory is fixed up front and adding a detection is O(1).
+// Time is detection time throughout: the windows move with the newest capture timestamp seen, not the
+// local clock, so replayed recordings and backlogs of stored frames are merged as they happened. Only
+// timestamps up to a tolerance past the local clock may move the windows, so one mis-stamped frame
+// cannot push them into the future and make every real detection look too old.
+// Only used on the subscriber's polling thread.
+class PestIncidentAggregator {
+    interface Listener {
+        void incidentRaised(String zoneId, PestType pest, int sightings, int cameras);
+
+        void incidentCleared(String zoneId, PestType pest);
+    }
+
+    private static final long WINDOW_MILLIS = Long.getLong("greenhouse.pest.windowMs", 10 * 60 * 1000);
+    private static final int BUCKETS = 10;
+    private static final long BUCKET_MILLIS = Math.max(1, WINDOW_MILLIS / BUCKETS);
+    // Sightings within the window that make an incident
+    private static final int INCIDENT_THRESHOLD = Integer.getInteger("greenhouse.pest.incidentThreshold", 3);
+    // Zone/pest pairs tracked at once; detections for further pairs are counted but not tracked
+    private static final int MAX_TRACKED = Integer.getInteger("greenhouse.pest.maxTracked", 16384);
+    // How far past the local clock a capture timestamp may be and still count
+    private static final long FUTURE_TOLERANCE_MILLIS = Long.getLong("greenhouse.pest.futureToleranceMs", 5 * 60 * 1000);
+
+    private final Listener listener;
+    private final int pestCount = PestType.count();
+
+    // Open-addressing table, at most half full; key = zone * pestCount + pest + 1, 0 = empty slot
+    private final int mask;
+    private final long[] keys;
+    private final long[] lastBucket;
+    private final int[] counts; // BUCKETS per slot
+    private final int[] windowCount;
+    private final long[] cameraMask; // cameras that saw the pest, by camera id hash
+    private final boolean[] active;
+    private int tracked;
+    private long untracked;
+    private long future;
+    private long late;
+    // Bucket of the newest detection seen; the end of every window
+    private long clockBucket = Long.MIN_VALUE;
+
+    // Per-zone window of all sightings, for hotspots
+    private final int zoneCount;
+    private final int[] zoneCounts;
+    private final long[] zoneLastBucket;
+    private final int[] zoneWindow;
+    private final int[] zoneIncidents;
+    private final String[] zoneIds;
+
+    PestIncidentAggregator(int zoneCount, Listener listener) {
+        this.listener = listener;
+        this.zoneCount = zoneCount;
+        zoneCounts = new int[zoneCount * BUCKETS];
+        zoneLastBucket = new long[zoneCount];
+        zoneWindow = new int[zoneCount];
+        zoneIncidents = new int[zoneCount];
+        zoneIds = new String[zoneCount];
+
+        int capacity = Integer.highestOneBit(Math.max(8, MAX_TRACKED) - 1) << 2;
+        mask = capacity - 1;
+        keys = new long[capacity];
+        lastBucket = new long[capacity];
+        counts = new int[capacity * BUCKETS];
+        windowCount = new int[capacity];
+        cameraMask = new long[capacity];
+        active = new boolean[capacity];
+    }
+
+    void add(PestDetectionEvent detection) {
+        int zone = detection.getZone();
+        if (zone < 0 || zone >= zoneCount) {
+            untracked++;
+            return;
+        }
+        if (detection.getTimestamp() > System.currentTimeMillis() + FUTURE_TOLERANCE_MILLIS) {
+            future++;
+            return;
+        }
+        long bucket = detection.getTimestamp() / BUCKET_MILLIS;
+        zoneIds[zone] = detection.getZoneId();
+        if (bucket > clockBucket) {
+            clockBucket = bucket;
+        } else if (clockBucket - bucket >= BUCKETS) {
+            late++;
+            return; // older than the window
+        }
+        if (zoneLastBucket[zone] - bucket >= BUCKETS) {
+            late++;
+            return; // older than the window
+        }
+        if (bucket > zoneLastBucket[zone]) {
+            zoneWindow[zone] -= slide(zoneCounts, zone * BUCKETS, zoneLastBucket[zone], bucket);
+            zoneLastBucket[zone] = bucket;
+        }
+        zoneCounts[zone * BUCKETS + (int) (bucket % BUCKETS)]++;
+        zoneWindow[zone]++;
+
+        long key = (long) zone * pestCount + detection.getPest().ordinal() + 1;
+        int slot = find(key);
+        if (slot < 0) {
+            if (tracked >= MAX_TRACKED) {
+                untracked++;
+                return;
+            }
+            slot = ~slot;
+            keys[slot] = key;
+            lastBucket[slot] = bucket;
+            tracked++;
+        }
+        if (lastBucket[slot] - bucket >= BUCKETS) {
+            return;
+        }
+        if (bucket > lastBucket[slot]) {
+            windowCount[slot] -= slide(counts, slot * BUCKETS, lastBucket[slot], bucket);
+            lastBucket[slot] = bucket;
+        }
+        counts[slot * BUCKETS + (int) (bucket % BUCKETS)]++;
+        windowCount[slot]++;
+        cameraMask[slot] |= 1L << (detection.getCameraId().hashCode() & 63);
+
+        if (!active[slot] && windowCount[slot] >= INCIDENT_THRESHOLD) {
+            active[slot] = true;
+            zoneIncidents[zone]++;
+            listener.incidentRaised(zoneIds[zone], detection.getPest(), windowCount[slot], Long.bitCount(cameraMask[slot]));
+        }
+    }
+
+    // Clears the buckets that leave the window when it moves on from last to bucket (at most BUCKETS,
+    // however long the gap) and returns the sightings they held
+    private static int slide(int[] counts, int base, long last, long bucket) {
+        int removed = 0;
+        for (long b = Math.max(last + 1, bucket - BUCKETS + 1); b <= bucket; b++) {
+            int index = base + (int) (b % BUCKETS);
+            removed += counts[index];
+            counts[index] = 0;
+        }
+        return removed;
+    }
+
+    private int home(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    // Slot holding key, or ~slot of the empty slot where it belongs
+    private int find(long key) {
+        int slot = home(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ~slot;
+    }
+
+    // Slides every window up to the newest detection, clears incidents whose window has emptied and
+    // frees their slots. O(table size), so it runs once per poll rather than per detection.
+    void expire() {
+        if (clockBucket == Long.MIN_VALUE) {
+            return;
+        }
+        long bucket = clockBucket;
+        for (int zone = 0; zone < zoneCount; zone++) {
+            if (bucket > zoneLastBucket[zone]) {
+                zoneWindow[zone] -= slide(zoneCounts, zone * BUCKETS, zoneLastBucket[zone], bucket);
+                zoneLastBucket[zone] = bucket;
+            }
+        }
+
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == 0) {
+                continue;
+            }
+            if (bucket > lastBucket[slot]) {
+                windowCount[slot] -= slide(counts, slot * BUCKETS, lastBucket[slot], bucket);
+                lastBucket[slot] = bucket;
+            }
+            if (windowCount[slot] > 0) {
+                continue;
+            }
+            if (active[slot]) {
+                int zone = (int) ((keys[slot] - 1) / pestCount);
+                zoneIncidents[zone]--;
+                listener.incidentCleared(zoneIds[zone], PestType.fromIndex((int) ((keys[slot] - 1) % pestCount)));
+            }
+            remove(slot);
+            slot--; // a later entry may have moved into this slot
+        }
+    }
+
+    // Backward-shift deletion: entries after the hole move up unless that would put them before their home
+    private void remove(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            if (((next - home(keys[next])) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                lastBucket[hole] = lastBucket[next];
+                System.arraycopy(counts, next * BUCKETS, counts, hole * BUCKETS, BUCKETS);
+                windowCount[hole] = windowCount[next];
+                cameraMask[hole] = cameraMask[next];
+                active[hole] = active[next];
+                hole = next;
+            }
+        }
+        keys[hole] = 0;
+        Arrays.fill(counts, hole * BUCKETS, hole * BUCKETS + BUCKETS, 0);
+        windowCount[hole] = 0;
+        cameraMask[hole] = 0;
+        active[hole] = false;
+        tracked--;
+    }
+
+    // Zones with sightings in the current window, most sightings first
+    List<PestHotspot> getHotspots(int limit) {
+        Integer[] zones = new Integer[zoneCount];
+        int found = 0;
+        for (int zone = 0; zone < zoneCount; zone++) {
+            if (zoneWindow[zone] > 0) {
+                zones[found++] = zone;
+            }
+        }
+        Arrays.sort(zones, 0, found, (a, b) -> Integer.compare(zoneWindow[b], zoneWindow[a]));
+        List<PestHotspot> hotspots = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, found); i++) {
+            int zone = zones[i];
+            hotspots.add(new PestHotspot(zoneIds[zone], zoneWindow[zone], zoneIncidents[zone]));
+        }
+        return hotspots;
+    }
+
+    String describeMetrics() {
+        return tracked + " zone/pest windows tracked" + (untracked > 0 ? ", " + untracked + " detections untracked" : "")
+                + (late > 0 ? ", " + late + " older than the window" : "")
+                + (future > 0 ? ", " + future + " timestamped in the future" : "");
+    }
+
+    long getWindowMillis() {
+        return WINDOW_MILLIS;
+    }
+}
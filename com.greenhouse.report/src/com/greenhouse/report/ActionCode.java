@@ -0,0 +1,47 @@
+package com.greenhouse.report;
+
+/**
+ * Kinds of action that can be recorded as compact events with
+ * {@link IGreenhouseReporter#recordEvent(ActionCode, String, String, long, double, double, double)}
+ * <p>
+ * Each code belongs to one service and carries the text pattern used when the event is written to
+ * the report, on the reporter's thread. Patterns refer to the zone id as %1$s, the detail as %2$s,
+ * the count as %3$d and the three measurements as %4$f, %5$f and %6$f.
+ */
+public enum ActionCode {
+    CLIMATE_SUMMARY("Climate Control", "%2$s"),
+    // count: lux; first, second: daily light integral so far and its target
+    LIGHT_BOOSTED("Light System", "Increased brightness in %1$s (%3$d lux, DLI %4$.1f/%5$.1f mol/m²)"),
+    LIGHT_DIMMED("Light System", "Dimmed lights in %1$s (%3$d lux, DLI %4$.1f/%5$.1f mol/m²)"),
+    LIGHT_RESTORED("Light System", "Restored optimal lighting in %1$s (%3$d lux, DLI %4$.1f/%5$.1f mol/m²)"),
+    // first, second: the previous day's light integral and its target
+    LIGHT_DAILY_SUMMARY("Light System", "Daily light integral in %1$s: %4$.1f of %5$.1f mol/m²"),
+    // detail: zone label; count: pump; first: moisture deficit; second, third: seconds waited and run time
+    IRRIGATION_STARTED("Irrigation System",
+            "Irrigation activated for %2$s - deficit %4$.2f%%, waited %5$.1fs, pump %3$d for %6$.1fs"),
+    IRRIGATION_SUFFICIENT("Irrigation System", "Monitored %3$d zones, all moisture levels sufficient"),
+    PEST_TREATED("Pest Control", "Deployed organic pesticides in %1$s due to %2$s incident (%3$d sightings)"),
+    PEST_CLEARED("Pest Control", "%2$s incident in %1$s cleared");
+
+    private final String service;
+    private final String pattern;
+
+    ActionCode(String service, String pattern) {
+        this.service = service;
+        this.pattern = pattern;
+    }
+
+    /**
+     * The service type this action is reported under, as used by recordAction
+     */
+    public String getService() {
+        return service;
+    }
+
+    /**
+     * Formats the report text for one event of this kind
+     */
+    public String describe(String zoneId, String detail, long count, double first, double second, double third) {
+        return String.format(pattern, zoneId, detail, count, first, second, third);
+    }
+}
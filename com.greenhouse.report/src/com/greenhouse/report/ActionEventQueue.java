@@ -0,0 +1,201 @@
+package com.greenhouse.report;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer, single-consumer ring of action events
+ * <p>
+ * Producers claim a slot by compare-and-set on the tail, fill in the event fields and publish the
+ * slot through its sequence number; the single consumer reads published slots in order and hands
+ * them back the same way. Nothing allocates per event and producers never wait for the consumer,
+ * except under the BLOCK policy and then only for a bounded time. Each event carries the log of the
+ * monitoring period it was recorded in, so it is stored there however late it is drained.
+ */
+class ActionEventQueue {
+    /**
+     * What a producer does when the ring is full
+     */
+    enum OverflowPolicy {
+        /** Drop the new event straight away */
+        DROP,
+        /** Wait up to the block timeout for the consumer to make room, then drop */
+        BLOCK
+    }
+
+    /**
+     * Receives drained events, in the order they were enqueued
+     */
+    interface Handler {
+        void handle(ActionLog log, ActionCode action, String zoneId, String detail, long count, double first, double second,
+                double third, long nanoTime);
+    }
+
+    private final int mask;
+    private final OverflowPolicy policy;
+    private final long blockNanos;
+    // Slot i is free for position p when sequences[i] == p, and holds the event for p when it is p + 1
+    private final AtomicLongArray sequences;
+    private final ActionLog[] logs;
+    private final ActionCode[] actions;
+    private final String[] zoneIds;
+    private final String[] details;
+    private final long[] counts;
+    private final double[] firsts;
+    private final double[] seconds;
+    private final double[] thirds;
+    private final long[] nanoTimes;
+    // Positions claimed so far, which is also the number of events enqueued
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // consumer only
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    // Written by the consumer only
+    private volatile long drained;
+    private volatile int maxDepth;
+
+    /**
+     * @param capacity Ring size, rounded up to a power of two
+     */
+    ActionEventQueue(int capacity, OverflowPolicy policy, long blockNanos) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.policy = policy;
+        this.blockNanos = blockNanos;
+        sequences = new AtomicLongArray(size);
+        for (int slot = 0; slot < size; slot++) {
+            sequences.set(slot, slot);
+        }
+        logs = new ActionLog[size];
+        actions = new ActionCode[size];
+        zoneIds = new String[size];
+        details = new String[size];
+        counts = new long[size];
+        firsts = new double[size];
+        seconds = new double[size];
+        thirds = new double[size];
+        nanoTimes = new long[size];
+    }
+
+    /**
+     * Enqueues one event; returns false if it was dropped
+     */
+    boolean offer(ActionLog log, ActionCode action, String zoneId, String detail, long count, double first, double second,
+            double third, long nanoTime) {
+        long deadline = 0;
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    logs[slot] = log;
+                    actions[slot] = action;
+                    zoneIds[slot] = zoneId;
+                    details[slot] = detail;
+                    counts[slot] = count;
+                    firsts[slot] = first;
+                    seconds[slot] = second;
+                    thirds[slot] = third;
+                    nanoTimes[slot] = nanoTime;
+                    // A full write, not lazySet: a producer checks whether the consumer is parked right
+                    // after this, and must not see a stale answer while the consumer misses the event
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // Full: the consumer has not freed this slot from the previous lap yet
+                if (policy == OverflowPolicy.DROP) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                long now = System.nanoTime();
+                if (deadline == 0) {
+                    deadline = now + blockNanos;
+                    blocked.incrementAndGet();
+                } else if (now - deadline >= 0) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                LockSupport.parkNanos(10_000);
+            }
+            // Otherwise another producer took the slot first; retry with the new tail
+        }
+    }
+
+    /**
+     * Hands up to limit events to the handler; consumer thread only. Returns the number drained.
+     */
+    int drain(Handler handler, int limit) {
+        int depth = (int) (tail.get() - head);
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+        int taken = 0;
+        while (taken < limit) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) {
+                break; // empty, or the next producer has not finished writing
+            }
+            ActionLog log = logs[slot];
+            ActionCode action = actions[slot];
+            String zoneId = zoneIds[slot];
+            String detail = details[slot];
+            long count = counts[slot];
+            double first = firsts[slot];
+            double second = seconds[slot];
+            double third = thirds[slot];
+            long nanoTime = nanoTimes[slot];
+            logs[slot] = null;
+            actions[slot] = null;
+            zoneIds[slot] = null;
+            details[slot] = null;
+            sequences.lazySet(slot, head + mask + 1);
+            head++;
+            taken++;
+            handler.handle(log, action, zoneId, detail, count, first, second, third, nanoTime);
+        }
+        drained += taken;
+        return taken;
+    }
+
+    /**
+     * Whether the next event is not yet available to drain; consumer thread only
+     */
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    /**
+     * Events enqueued so far, not counting dropped ones
+     */
+    long getEnqueued() {
+        return tail.get();
+    }
+
+    /**
+     * Events handed to the consumer's handler so far
+     */
+    long getDrained() {
+        return drained;
+    }
+
+    /**
+     * Events enqueued but not yet drained
+     */
+    int getDepth() {
+        return (int) Math.max(0, tail.get() - drained);
+    }
+
+    int getCapacity() {
+        return mask + 1;
+    }
+
+    String describeMetrics() {
+        return tail.get() + " events queued, " + dropped.get() + " dropped (" + policy + " policy"
+                + (policy == OverflowPolicy.BLOCK ? ", " + blocked.get() + " producer waits" : "") + "), depth "
+                + getDepth() + ", peak depth " + maxDepth + " of " + getCapacity();
+    }
+}
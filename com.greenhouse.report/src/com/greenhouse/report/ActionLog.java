@@ -0,0 +1,134 @@
+package com.greenhouse.report;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Append-only log of the actions recorded in one monitoring period
+ * <p>
+ * Entries live in fixed-size segments that are allocated on first use, so appending never copies
+ * earlier entries and the memory held grows with the number of actions up to a fixed cap.
+ * Appends are lock-free: a writer claims a position with one atomic increment and publishes the
+ * entry by setting its action text last. Readers walk the segments in place and skip entries whose
+ * writer has not finished yet. Actions beyond the cap are counted and dropped.
+ */
+class ActionLog {
+    /**
+     * Receives the entries of the log, oldest first
+     */
+    interface Visitor {
+        void visit(int service, long timeMillis, String action);
+    }
+
+    static final int SEGMENT_SIZE = 4096;
+
+    private final int capacity;
+    private final AtomicReferenceArray<Segment> segments;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private static final class Segment {
+        final int[] services = new int[SEGMENT_SIZE];
+        final long[] times = new long[SEGMENT_SIZE];
+        // Set last; a non-null action marks the entry as complete
+        final AtomicReferenceArray<String> actions = new AtomicReferenceArray<>(SEGMENT_SIZE);
+    }
+
+    /**
+     * @param capacity Most entries the log will hold; rounded up to whole segments
+     */
+    ActionLog(int capacity) {
+        int segmentCount = Math.max(1, (capacity + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        this.capacity = segmentCount * SEGMENT_SIZE;
+        this.segments = new AtomicReferenceArray<>(segmentCount);
+    }
+
+    /**
+     * Appends an entry; returns false if the log is full
+     */
+    boolean append(int service, long timeMillis, String action) {
+        long position = next.getAndIncrement();
+        if (position >= capacity) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        int index = (int) position;
+        Segment segment = segment(index / SEGMENT_SIZE);
+        int slot = index % SEGMENT_SIZE;
+        segment.services[slot] = service;
+        segment.times[slot] = timeMillis;
+        segment.actions.set(slot, action);
+        return true;
+    }
+
+    private Segment segment(int index) {
+        Segment segment = segments.get(index);
+        if (segment == null) {
+            // Writers reaching a new segment together race to install it; the losers use the winner's
+            Segment created = new Segment();
+            segment = segments.compareAndSet(index, null, created) ? created : segments.get(index);
+        }
+        return segment;
+    }
+
+    /**
+     * Visits every completed entry in append order without copying the log
+     */
+    void forEach(Visitor visitor) {
+        int end = (int) Math.min(next.get(), capacity);
+        for (int index = 0; index < end; index += SEGMENT_SIZE) {
+            Segment segment = segments.get(index / SEGMENT_SIZE);
+            if (segment == null) {
+                continue; // its first writer has claimed a position but not installed it yet
+            }
+            int slots = Math.min(SEGMENT_SIZE, end - index);
+            for (int slot = 0; slot < slots; slot++) {
+                String action = segment.actions.get(slot);
+                if (action != null) {
+                    visitor.visit(segment.services[slot], segment.times[slot], action);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits the entries from position from onwards, in order, stopping at the first one whose writer
+     * has not finished yet; returns the position to continue from. For following the log as it grows.
+     */
+    int forEachFrom(int from, Visitor visitor) {
+        int end = (int) Math.min(next.get(), capacity);
+        int position = from;
+        while (position < end) {
+            Segment segment = segments.get(position / SEGMENT_SIZE);
+            if (segment == null) {
+                break;
+            }
+            int slot = position % SEGMENT_SIZE;
+            String action = segment.actions.get(slot);
+            if (action == null) {
+                break;
+            }
+            visitor.visit(segment.services[slot], segment.times[slot], action);
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Number of positions claimed so far, up to the capacity; entries below it may still be in progress
+     */
+    int size() {
+        return (int) Math.min(next.get(), capacity);
+    }
+
+    /**
+     * Number of actions that did not fit in the log
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+}
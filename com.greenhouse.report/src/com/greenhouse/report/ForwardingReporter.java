@@ -0,0 +1,49 @@
+package com.greenhouse.report;
+
+import java.util.function.Supplier;
+
+/**
+ * Reporter that forwards to whichever reporter service is currently bound
+ * <p>
+ * Lets long-lived components keep one reporter reference across restarts of the reporting bundle.
+ * Actions recorded while no reporter is bound are dropped.
+ */
+public final class ForwardingReporter implements IGreenhouseReporter {
+    private final Supplier<IGreenhouseReporter> target;
+
+    /**
+     * @param target Source of the current reporter, returning null while none is available
+     */
+    public ForwardingReporter(Supplier<IGreenhouseReporter> target) {
+        this.target = target;
+    }
+
+    @Override
+    public void recordAction(String serviceType, String action) {
+        IGreenhouseReporter reporter = target.get();
+        if (reporter != null) {
+            reporter.recordAction(serviceType, action);
+        }
+    }
+
+    @Override
+    public boolean recordEvent(ActionCode action, String zoneId, String detail, long count, double first,
+            double second, double third) {
+        IGreenhouseReporter reporter = target.get();
+        return reporter != null && reporter.recordEvent(action, zoneId, detail, count, first, second, third);
+    }
+
+    @Override
+    public void startMonitoring(int durationSeconds) {
+        IGreenhouseReporter reporter = target.get();
+        if (reporter != null) {
+            reporter.startMonitoring(durationSeconds);
+        }
+    }
+
+    @Override
+    public String generateReport() {
+        IGreenhouseReporter reporter = target.get();
+        return reporter != null ? reporter.generateReport() : "";
+    }
+}
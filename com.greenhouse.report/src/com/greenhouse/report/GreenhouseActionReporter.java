@@ -7,40 +7,167 @@ import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Implementation of the greenhouse reporter
  */
 public class GreenhouseActionReporter implements IGreenhouseReporter, Runnable {
     
-    private final Map<String, List<String>> serviceActions = new ConcurrentHashMap<>();
+    private static final String[] SERVICES = {"Climate Control", "Light System", "Irrigation System", "Pest Control"};
+    // Most actions kept per monitoring period; further actions are counted as dropped
+    private static final int MAX_ACTIONS = Integer.getInteger("greenhouse.report.maxActions", 1 << 20);
+    // Print every recorded action to the console as well; off unless asked for, and then done by the
+    // drain thread, never by the caller
+    private static final boolean ECHO = Boolean.getBoolean("greenhouse.report.echo");
+    // Events recorded with recordEvent wait here for the drain thread; what to do when it is full
+    private static final int QUEUE_SIZE = Integer.getInteger("greenhouse.report.queueSize", 1 << 16);
+    private static final ActionEventQueue.OverflowPolicy QUEUE_POLICY = ActionEventQueue.OverflowPolicy.valueOf(
+            System.getProperty("greenhouse.report.queuePolicy", "drop").toUpperCase(Locale.ROOT));
+    private static final long QUEUE_BLOCK_MILLIS = Long.getLong("greenhouse.report.queueBlockMs", 5);
+    private static final int DRAIN_BATCH = 1024;
+    // Producers wake the idle drain thread; this only bounds a wait that nothing signals
+    private static final long DRAIN_IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // How long a report waits for the drain thread to store the events of its period
+    private static final long REPORT_DRAIN_NANOS = TimeUnit.SECONDS.toNanos(1);
+    
+    private final Map<String, Integer> serviceIndex = new HashMap<>();
+    // Replaced, not cleared, at the start of each period so recording never waits for a reset
+    private volatile ActionLog actionLog = new ActionLog(MAX_ACTIONS);
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
     private volatile boolean isRunning = false;
     private final Semaphore reportReady = new Semaphore(0);
     
+    private final ActionEventQueue eventQueue = new ActionEventQueue(QUEUE_SIZE, QUEUE_POLICY,
+            TimeUnit.MILLISECONDS.toNanos(QUEUE_BLOCK_MILLIS));
+    private final int[] serviceOfAction = new int[ActionCode.values().length];
+    // Events passed to recordEvent outside a monitoring period; not queued and not reported
+    private final LongAdder ignoredEvents = new LongAdder();
+    private final Thread drainThread;
+    private volatile boolean draining = true;
+    // Set while the drain thread is about to park or parked, so only producers that find it idle unpark it
+    private volatile boolean drainParked;
+    // Event times are taken with nanoTime; this pair converts them to wall-clock time
+    private final long baseMillis = System.currentTimeMillis();
+    private final long baseNanos = System.nanoTime();
+    // How far the drain thread has echoed, and in which log; drain thread only
+    private ActionLog echoLog;
+    private int echoPosition;
+    private final ActionLog.Visitor echo = (service, timeMillis, action) ->
+            System.out.println("[Reporter] Recorded: " + SERVICES[service] + " - " + action);
+    
     public GreenhouseActionReporter() {
-        serviceActions.put("Climate Control", new CopyOnWriteArrayList<>());
-        serviceActions.put("Light System", new CopyOnWriteArrayList<>());
-        serviceActions.put("Irrigation System", new CopyOnWriteArrayList<>());
-        serviceActions.put("Pest Control", new CopyOnWriteArrayList<>());
+        for (int service = 0; service < SERVICES.length; service++) {
+            serviceIndex.put(SERVICES[service], service);
+        }
+        for (ActionCode action : ActionCode.values()) {
+            serviceOfAction[action.ordinal()] = serviceIndex.get(action.getService());
+        }
+        drainThread = new Thread(this::drainEvents, "greenhouse-report-drain");
+        drainThread.setDaemon(true);
+        drainThread.start();
     }
     
     @Override
     public void recordAction(String serviceType, String action) {
         if (isRunning) {
-            List<String> actions = serviceActions.get(serviceType);
-            if (actions != null) {
-                actions.add(action + " [" + new Date() + "]");
-                System.out.println("[Reporter] Recorded: " + serviceType + " - " + action);
+            Integer service = serviceIndex.get(serviceType);
+            if (service != null) {
+                // Only the time is kept here; the entry is formatted when the report is generated and
+                // echoed to the console by the drain thread, so the caller never waits on the console
+                actionLog.append(service, System.currentTimeMillis(), action);
+                if (ECHO) {
+                    wakeDrain();
+                }
             }
         }
     }
     
     @Override
-    public void startMonitoring(int durationSeconds) {
-        for (List<String> actions : serviceActions.values()) {
-            actions.clear();
+    public boolean recordEvent(ActionCode action, String zoneId, String detail, long count, double first,
+            double second, double third) {
+        // Never formats, prints or waits for storage on the caller's thread
+        if (!isRunning) {
+            ignoredEvents.increment();
+            return false;
+        }
+        // The event goes to the log of the period it was recorded in, even if drained after the next starts
+        boolean queued = eventQueue.offer(actionLog, action, zoneId, detail, count, first, second, third,
+                System.nanoTime());
+        wakeDrain();
+        return queued;
+    }
+    
+    private void wakeDrain() {
+        if (drainParked) {
+            drainParked = false;
+            LockSupport.unpark(drainThread);
+        }
+    }
+    
+    // The single consumer of the event queue: formats events into the action log, then echoes
+    // everything new in the log, from recordEvent and recordAction alike, to the console
+    private void drainEvents() {
+        ActionEventQueue.Handler handler = (log, action, zoneId, detail, count, first, second, third, nanoTime) -> {
+            int service = serviceOfAction[action.ordinal()];
+            long timeMillis = baseMillis + (nanoTime - baseNanos) / 1_000_000;
+            String text = action.describe(zoneId, detail, count, first, second, third);
+            log.append(service, timeMillis, text);
+            if (ECHO && log != echoLog && log != actionLog) {
+                // Late event of a period whose log has already been echoed in full
+                echo.visit(service, timeMillis, text);
+            }
+        };
+        while (draining) {
+            int drained = eventQueue.drain(handler, DRAIN_BATCH);
+            if (drained + echoNewActions() == 0) {
+                drainParked = true;
+                // Look again after announcing the park: anything published before a producer read the
+                // flag is seen here, anything after it comes with an unpark
+                if (draining && eventQueue.isEmpty() && !hasActionsToEcho()) {
+                    LockSupport.parkNanos(DRAIN_IDLE_NANOS);
+                }
+                drainParked = false;
+            }
+        }
+        // Keep what was enqueued before shutdown
+        int drained;
+        do {
+            drained = eventQueue.drain(handler, DRAIN_BATCH);
+        } while (drained > 0);
+        echoNewActions();
+    }
+    
+    private boolean hasActionsToEcho() {
+        ActionLog log = actionLog;
+        return ECHO && (log != echoLog || log.size() > echoPosition);
+    }
+    
+    // Prints the actions appended since the last call; returns how many
+    private int echoNewActions() {
+        if (!ECHO) {
+            return 0;
         }
+        int echoed = 0;
+        ActionLog log = actionLog;
+        if (log != echoLog) {
+            // A new period started: finish the previous log before following the new one
+            if (echoLog != null) {
+                echoed += echoLog.forEachFrom(echoPosition, echo) - echoPosition;
+            }
+            echoLog = log;
+            echoPosition = 0;
+        }
+        int position = log.forEachFrom(echoPosition, echo);
+        echoed += position - echoPosition;
+        echoPosition = position;
+        return echoed;
+    }
+    
+    @Override
+    public void startMonitoring(int durationSeconds) {
+        actionLog = new ActionLog(MAX_ACTIONS);
         
         isRunning = true;
         System.out.println("\n[Reporter] ========= Started monitoring greenhouse systems for " + 
@@ -73,25 +200,44 @@ public class GreenhouseActionReporter implements IGreenhouseReporter, Runnable {
         report.append("=====================================================\n");
         report.append("Generated: ").append(new Date()).append("\n\n");
         
-        int totalActions = serviceActions.values().stream().mapToInt(List::size).sum();
+        awaitQueuedEvents();
+        ActionLog log = actionLog;
+        int[] counts = new int[SERVICES.length];
+        log.forEach((service, timeMillis, action) -> counts[service]++);
+        int totalActions = Arrays.stream(counts).sum();
         report.append("SUMMARY:\n");
         report.append("Total actions recorded: ").append(totalActions).append("\n");
+        if (log.getDropped() > 0) {
+            report.append("Actions dropped (more than ").append(log.getCapacity()).append(" in the period): ")
+                    .append(log.getDropped()).append("\n");
+        }
+        report.append("Event queue: ").append(eventQueue.describeMetrics()).append("\n");
+        long ignored = ignoredEvents.sum();
+        if (ignored > 0) {
+            report.append("Events ignored so far (recorded outside a monitoring period): ").append(ignored).append("\n");
+        }
         
-        for (Map.Entry<String, List<String>> entry : serviceActions.entrySet()) {
-            report.append("- ").append(entry.getKey()).append(": ").append(entry.getValue().size()).append(" actions\n");
+        for (int service = 0; service < SERVICES.length; service++) {
+            report.append("- ").append(SERVICES[service]).append(": ").append(counts[service]).append(" actions\n");
         }
         
         report.append("\nDETAILED ACTIONS BY SERVICE:\n");
-        for (Map.Entry<String, List<String>> entry : serviceActions.entrySet()) {
-            report.append("\n").append(entry.getKey()).append(":\n");
+        for (int service = 0; service < SERVICES.length; service++) {
+            report.append("\n").append(SERVICES[service]).append(":\n");
             report.append("------------------------\n");
             
-            if (entry.getValue().isEmpty()) {
+            if (counts[service] == 0) {
                 report.append("No actions recorded during monitoring period.\n");
             } else {
-                for (int i = 0; i < entry.getValue().size(); i++) {
-                    report.append(i + 1).append(". ").append(entry.getValue().get(i)).append("\n");
-                }
+                // One pass over the log per service, in recording order
+                int wanted = service;
+                int[] number = {0};
+                log.forEach((entryService, timeMillis, action) -> {
+                    if (entryService == wanted) {
+                        report.append(++number[0]).append(". ").append(action)
+                                .append(" [").append(new Date(timeMillis)).append("]\n");
+                    }
+                });
             }
         }
         
@@ -105,6 +251,16 @@ public class GreenhouseActionReporter implements IGreenhouseReporter, Runnable {
         return reportContent;
     }
     
+    // Waits, for a bounded time, until the drain thread has stored every event queued so far
+    private void awaitQueuedEvents() {
+        long queued = eventQueue.getEnqueued();
+        long deadline = System.nanoTime() + REPORT_DRAIN_NANOS;
+        while (eventQueue.getDrained() < queued && System.nanoTime() - deadline < 0) {
+            wakeDrain();
+            LockSupport.parkNanos(100_000);
+        }
+    }
+    
     private void saveReportToFile(String content, String filename) {
         Path filePath = Path.of(filename);
         try {
@@ -136,5 +292,12 @@ public class GreenhouseActionReporter implements IGreenhouseReporter, Runnable {
         isRunning = false;
         reportReady.release();
         scheduler.shutdownNow();
+        draining = false;
+        LockSupport.unpark(drainThread);
+        try {
+            drainThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
\ No newline at end of file
@@ -11,6 +11,33 @@ public interface IGreenhouseReporter {
      */
     void recordAction(String serviceType, String action);
     
+    /**
+     * Records an action as a compact event without waiting for it to be formatted, stored or printed.
+     * Intended for control loops: pass numbers as they are and text only if the caller already has
+     * it, since the report text is built later from the action's pattern.
+     * @param action What was done; also identifies the service
+     * @param zoneId Zone the action applies to, or null
+     * @param detail Text argument of the action, such as a pest name, or null
+     * @param count Whole-number argument, such as a reading, a pump or a number of zones
+     * @param first First measurement argument of the action
+     * @param second Second measurement argument of the action
+     * @param third Third measurement argument of the action
+     * @return false if the event was not recorded, because the reporter could not keep up or was not monitoring
+     */
+    default boolean recordEvent(ActionCode action, String zoneId, String detail, long count, double first,
+            double second, double third) {
+        recordAction(action.getService(), action.describe(zoneId, detail, count, first, second, third));
+        return true;
+    }
+    
+    /**
+     * Records an action that has no measurement arguments as a compact event
+     * @see #recordEvent(ActionCode, String, String, long, double, double, double)
+     */
+    default boolean recordEvent(ActionCode action, String zoneId, String detail, long count) {
+        return recordEvent(action, zoneId, detail, count, 0, 0, 0);
+    }
+    
     /**
      * Start monitoring for a specified duration
      * @param durationSeconds Duration in seconds
@@ -6,18 +6,26 @@ import org.osgi.framework.ServiceRegistration;
 
 public class Activator implements BundleActivator {
     private ServiceRegistration<?> registration;
+    private SoilMoistureProducer producer;
 
     @Override
     public void start(BundleContext context) throws Exception {
-        SoilMoistureProducer producer = new SoilMoistureProducer();
-        // Register the producer class as a service using its fully qualified class name
-        registration = context.registerService(SoilMoistureProducer.class.getName(), producer, null);
+        producer = new SoilMoistureProducer();
+        producer.start();
+        // Register the producer under its service interface
+        registration = context.registerService(ISoilMoistureService.class.getName(), producer, null);
         System.out.println("[SoilMoistureProducer] Service Registered.");
     }
 
     @Override
     public void stop(BundleContext context) throws Exception {
-        // No explicit unregister needed; OSGi will unregister the service on bundle stop.
+        // Withdraw the service before its sampler stops
+        if (registration != null) {
+            registration.unregister();
+        }
+        if (producer != null) {
+            producer.stop();
+        }
         System.out.println("[SoilMoistureProducer] Bundle Stopped.");
     }
 }
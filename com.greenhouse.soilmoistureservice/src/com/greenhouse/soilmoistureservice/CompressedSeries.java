@@ -0,0 +1,220 @@
+package com.greenhouse.soilmoistureservice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// One zone's readings, compressed Gorilla-style into blocks of up to BLOCK_POINTS points.
+// Timestamps are stored as delta-of-delta, so a steady sampling rate costs one bit per point.
+// Values are quantized to the sensor resolution and stored as the delta to the previous value,
+// so an unchanged reading also costs one bit. Both use prefix-coded bit widths.
+// A block records its time span, which lets range scans skip blocks without decoding them.
+final class CompressedSeries {
+    static final int BLOCK_POINTS = 1024;
+
+    // Bit widths selected by the prefixes 0, 10, 110, 1110 and 1111
+    private static final int[] TIME_WIDTHS = { 0, 7, 12, 20, 64 };
+    private static final int[] VALUE_WIDTHS = { 0, 4, 8, 16, 64 };
+
+    // A sealed or active block: first point in the header, the rest as bits
+    private static final class Block {
+        final long firstTimestamp;
+        final long firstValue;
+        long lastTimestamp;
+        int count;
+        long[] bits;
+        int bitLength;
+
+        Block(long firstTimestamp, long firstValue, long[] bits) {
+            this.firstTimestamp = firstTimestamp;
+            this.firstValue = firstValue;
+            this.lastTimestamp = firstTimestamp;
+            this.count = 1;
+            this.bits = bits;
+        }
+    }
+
+    private final double resolution;
+    private final long retentionMillis;
+    private final List<Block> blocks = new ArrayList<>();
+    private long pointCount;
+    private Block active;
+    // Encoder state of the active block
+    private long previousTimestamp;
+    private long previousDelta;
+    private long previousValue;
+
+    CompressedSeries(double resolution, long retentionMillis) {
+        this.resolution = resolution;
+        this.retentionMillis = retentionMillis;
+    }
+
+    // Readings must arrive in time order; earlier or repeated timestamps are ignored
+    synchronized boolean append(long timestamp, double value) {
+        long units = Math.round(value / resolution);
+        if (active != null && timestamp <= previousTimestamp) {
+            return false;
+        }
+        if (active == null || active.count == BLOCK_POINTS) {
+            seal();
+            // Blocks are only dropped whole, so retention is applied as each new block starts
+            dropBefore(timestamp - retentionMillis);
+            active = new Block(timestamp, units, new long[16]);
+            blocks.add(active);
+            previousDelta = 0;
+        } else {
+            long delta = timestamp - previousTimestamp;
+            writePrefixed(active, zigZag(delta - previousDelta), TIME_WIDTHS);
+            writePrefixed(active, zigZag(units - previousValue), VALUE_WIDTHS);
+            previousDelta = delta;
+            active.lastTimestamp = timestamp;
+            active.count++;
+        }
+        previousTimestamp = timestamp;
+        previousValue = units;
+        pointCount++;
+        return true;
+    }
+
+    // Drop whole blocks that end before the cutoff
+    private void dropBefore(long cutoff) {
+        int drop = 0;
+        while (drop < blocks.size() && blocks.get(drop) != active && blocks.get(drop).lastTimestamp < cutoff) {
+            pointCount -= blocks.get(drop).count;
+            drop++;
+        }
+        if (drop > 0) {
+            blocks.subList(0, drop).clear();
+        }
+    }
+
+    synchronized long getMemoryBytes() {
+        long bytes = 0;
+        for (Block block : blocks) {
+            bytes += 48 + (long) block.bits.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    synchronized long getPointCount() {
+        return pointCount;
+    }
+
+    // Receives decoded points of a scan, oldest first
+    interface PointSink {
+        void point(long timestamp, double value);
+    }
+
+    // Decode every point in [from, to], skipping blocks entirely outside the range
+    synchronized void scan(long from, long to, PointSink sink) {
+        for (Block block : blocks) {
+            if (block.lastTimestamp < from) {
+                continue;
+            }
+            if (block.firstTimestamp > to) {
+                break;
+            }
+            BitReader reader = new BitReader(block.bits);
+            long timestamp = block.firstTimestamp;
+            long units = block.firstValue;
+            long delta = 0;
+            for (int i = 0; i < block.count; i++) {
+                if (i > 0) {
+                    delta += unZigZag(reader.readPrefixed(TIME_WIDTHS));
+                    timestamp += delta;
+                    units += unZigZag(reader.readPrefixed(VALUE_WIDTHS));
+                }
+                if (timestamp > to) {
+                    return;
+                }
+                if (timestamp >= from) {
+                    sink.point(timestamp, units * resolution);
+                }
+            }
+        }
+    }
+
+    // Trim the active block's buffer to its used length before it stops growing
+    private void seal() {
+        if (active != null) {
+            active.bits = Arrays.copyOf(active.bits, (active.bitLength + 63) >>> 6);
+        }
+    }
+
+    private static void writePrefixed(Block block, long value, int[] widths) {
+        int bucket = 0;
+        while (bucket < widths.length - 1 && (widths[bucket] == 0 ? value != 0 : value >>> widths[bucket] != 0)) {
+            bucket++;
+        }
+        // Prefix: bucket ones followed by a zero, except for the last bucket
+        int prefixLength = bucket < widths.length - 1 ? bucket + 1 : bucket;
+        long prefix = bucket < widths.length - 1 ? ((1L << bucket) - 1) << 1 : (1L << bucket) - 1;
+        writeBits(block, prefix, prefixLength);
+        writeBits(block, value, widths[bucket]);
+    }
+
+    private static void writeBits(Block block, long value, int width) {
+        if (width == 0) {
+            return;
+        }
+        int needed = (block.bitLength + width + 63) >>> 6;
+        if (needed > block.bits.length) {
+            block.bits = Arrays.copyOf(block.bits, Math.max(needed, block.bits.length * 2));
+        }
+        // Bits are written most significant first
+        int offset = block.bitLength & 63;
+        int word = block.bitLength >>> 6;
+        int free = 64 - offset;
+        if (width <= free) {
+            long masked = width == 64 ? value : value & ((1L << width) - 1);
+            block.bits[word] |= masked << (free - width);
+        } else {
+            int rest = width - free;
+            block.bits[word] |= (value >>> rest) & ((1L << free) - 1);
+            block.bits[word + 1] |= value << (64 - rest);
+        }
+        block.bitLength += width;
+    }
+
+    // Sequential decoder over a block's bits
+    private static final class BitReader {
+        private final long[] bits;
+        private int position;
+
+        BitReader(long[] bits) {
+            this.bits = bits;
+        }
+
+        long readPrefixed(int[] widths) {
+            int bucket = 0;
+            while (bucket < widths.length - 1 && readBits(1) == 1) {
+                bucket++;
+            }
+            return readBits(widths[bucket]);
+        }
+
+        long readBits(int width) {
+            if (width == 0) {
+                return 0;
+            }
+            int word = position >>> 6;
+            int available = 64 - (position & 63);
+            position += width;
+            if (width <= available) {
+                long value = bits[word] >>> (available - width);
+                return width == 64 ? value : value & ((1L << width) - 1);
+            }
+            int rest = width - available;
+            long high = bits[word] & ((1L << available) - 1);
+            return (high << rest) | (bits[word + 1] >>> (64 - rest));
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
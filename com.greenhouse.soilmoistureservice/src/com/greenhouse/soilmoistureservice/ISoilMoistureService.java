@@ -0,0 +1,24 @@
+package com.greenhouse.soilmoistureservice;
+
+import java.util.Map;
+
+public interface ISoilMoistureService {
+    // Latest sampled moisture of every zone as an immutable, versioned snapshot.
+    // Reading does not trigger sampling, so any number of consumers can poll freely.
+    SoilMoistureSnapshot getSnapshot();
+    
+    // Latest moisture levels as a read-only map of zone ID to percentage
+    Map<String, Double> getSoilMoistureLevels();
+    
+    // Every recorded reading of a zone between two times (inclusive), or null for an unknown zone
+    MoistureHistorySeries getMoistureHistory(String zoneId, long fromMillis, long toMillis);
+    
+    // A zone's readings between two times summarised per bucket of bucketMillis, or null for an unknown zone
+    MoistureHistorySeries getMoistureHistory(String zoneId, long fromMillis, long toMillis, long bucketMillis);
+    
+    // Get all available zone IDs
+    String[] getAvailableZones();
+    
+    // How often the sensors are sampled, in milliseconds
+    long getSamplingIntervalMillis();
+}
@@ -0,0 +1,102 @@
+package com.greenhouse.soilmoistureservice;
+
+import java.util.Arrays;
+
+// Compressed moisture history of every zone, indexed like the moisture snapshot.
+// Readings are kept for a retention period and can be read back raw or downsampled into buckets.
+final class MoistureHistory {
+    // Largest number of buckets a downsampled query may ask for
+    private static final int MAX_BUCKETS = 1_000_000;
+
+    private final CompressedSeries[] zones;
+
+    MoistureHistory(int zoneCount, double resolution, long retentionMillis) {
+        zones = new CompressedSeries[zoneCount];
+        for (int zone = 0; zone < zoneCount; zone++) {
+            zones[zone] = new CompressedSeries(resolution, retentionMillis);
+        }
+    }
+
+    void append(int zone, long timestamp, double moisture) {
+        zones[zone].append(timestamp, moisture);
+    }
+
+    long getMemoryBytes() {
+        long bytes = 0;
+        for (CompressedSeries series : zones) {
+            bytes += series.getMemoryBytes();
+        }
+        return bytes;
+    }
+
+    long getPointCount() {
+        long points = 0;
+        for (CompressedSeries series : zones) {
+            points += series.getPointCount();
+        }
+        return points;
+    }
+
+    // Every reading of a zone in [from, to]
+    MoistureHistorySeries range(String zoneId, int zone, long from, long to) {
+        long[][] timestamps = { new long[64] };
+        double[][] values = { new double[64] };
+        int[] size = { 0 };
+        zones[zone].scan(from, to, (timestamp, moisture) -> {
+            if (size[0] == timestamps[0].length) {
+                timestamps[0] = Arrays.copyOf(timestamps[0], size[0] * 2);
+                values[0] = Arrays.copyOf(values[0], size[0] * 2);
+            }
+            timestamps[0][size[0]] = timestamp;
+            values[0][size[0]++] = moisture;
+        });
+        double[] result = Arrays.copyOf(values[0], size[0]);
+        return new MoistureHistorySeries(zoneId, Arrays.copyOf(timestamps[0], size[0]), result, result, result);
+    }
+
+    // Mean, minimum and maximum of a zone's readings in [from, to], per bucket of bucketMillis
+    // starting at from; empty buckets are left out
+    MoistureHistorySeries downsample(String zoneId, int zone, long from, long to, long bucketMillis) {
+        if (bucketMillis <= 0 || to < from || (to - from) / bucketMillis >= MAX_BUCKETS) {
+            throw new IllegalArgumentException("Invalid history buckets: " + from + ".." + to + " by " + bucketMillis);
+        }
+        int buckets = (int) ((to - from) / bucketMillis) + 1;
+        double[] sums = new double[buckets];
+        double[] minimums = new double[buckets];
+        double[] maximums = new double[buckets];
+        int[] counts = new int[buckets];
+        zones[zone].scan(from, to, (timestamp, moisture) -> {
+            int bucket = (int) ((timestamp - from) / bucketMillis);
+            if (counts[bucket]++ == 0) {
+                minimums[bucket] = moisture;
+                maximums[bucket] = moisture;
+            } else {
+                minimums[bucket] = Math.min(minimums[bucket], moisture);
+                maximums[bucket] = Math.max(maximums[bucket], moisture);
+            }
+            sums[bucket] += moisture;
+        });
+
+        int filled = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                filled++;
+            }
+        }
+        long[] startTimes = new long[filled];
+        double[] means = new double[filled];
+        double[] bucketMinimums = new double[filled];
+        double[] bucketMaximums = new double[filled];
+        int next = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (counts[bucket] > 0) {
+                startTimes[next] = from + bucket * bucketMillis;
+                means[next] = sums[bucket] / counts[bucket];
+                bucketMinimums[next] = minimums[bucket];
+                bucketMaximums[next] = maximums[bucket];
+                next++;
+            }
+        }
+        return new MoistureHistorySeries(zoneId, startTimes, means, bucketMinimums, bucketMaximums);
+    }
+}
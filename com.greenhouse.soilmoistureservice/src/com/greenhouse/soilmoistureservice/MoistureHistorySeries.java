@@ -0,0 +1,44 @@
+package com.greenhouse.soilmoistureservice;
+
+// Moisture readings of one zone over a time range, oldest first, held in primitive arrays.
+// For downsampled queries each point is a bucket: its start time and the mean, minimum and
+// maximum of the readings in it; for raw queries all three values are the reading itself.
+public final class MoistureHistorySeries {
+    private final String zoneId;
+    private final long[] timestamps;
+    private final double[] means;
+    private final double[] minimums;
+    private final double[] maximums;
+
+    MoistureHistorySeries(String zoneId, long[] timestamps, double[] means, double[] minimums, double[] maximums) {
+        this.zoneId = zoneId;
+        this.timestamps = timestamps;
+        this.means = means;
+        this.minimums = minimums;
+        this.maximums = maximums;
+    }
+
+    public String getZoneId() {
+        return zoneId;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public long getTimestamp(int i) {
+        return timestamps[i];
+    }
+
+    public double getMoisture(int i) {
+        return means[i];
+    }
+
+    public double getMinimum(int i) {
+        return minimums[i];
+    }
+
+    public double getMaximum(int i) {
+        return maximums[i];
+    }
+}
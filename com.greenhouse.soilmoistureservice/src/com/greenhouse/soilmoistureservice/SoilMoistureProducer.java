@@ -1,35 +1,196 @@
 package com.greenhouse.soilmoistureservice;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-public class SoilMoistureProducer {
-    private final Map<String, String> GREENHOUSE_ZONES = new HashMap<>();
-    private final Map<String, Double> moistureLevels = new HashMap<>();
-    private final Random random = new Random();
+import com.greenhouse.common.sensorlog.SensorChannel;
+import com.greenhouse.common.sensorlog.SensorRecorder;
+import com.greenhouse.common.sensorlog.SensorReplay;
+import com.greenhouse.common.sensorlog.SensorStreamConfig;
+import com.greenhouse.zoneregistry.ZoneRegistry;
+
+public class SoilMoistureProducer implements ISoilMoistureService {
+    // Live, record or replay, plus seed and sampling interval for repeatable runs
+    private final SensorStreamConfig streamConfig = SensorStreamConfig.forSource("soil");
+    private final Random random = streamConfig.newRandom();
+    private final String[] zoneOrder;
+    private final Map<String, Integer> zoneIndex = new HashMap<>();
+    private volatile SoilMoistureSnapshot snapshot;
+    // Compressed per-zone history; sensor resolution in percent and how long readings are kept
+    private static final double HISTORY_RESOLUTION = Double.parseDouble(
+            System.getProperty("greenhouse.soil.history.resolution", "0.01"));
+    private static final long HISTORY_RETENTION_MILLIS = Long.getLong("greenhouse.soil.history.retentionDays", 90)
+            * 24 * 60 * 60 * 1000;
+    private final MoistureHistory history;
+    private long version;
+    private SensorRecorder recorder;
+    private ScheduledExecutorService sampler;
 
     public SoilMoistureProducer() {
-        // Define zones and corresponding crops
-        GREENHOUSE_ZONES.put("Zone-A", "Tomatoes");
-        GREENHOUSE_ZONES.put("Zone-B", "Cucumbers");
-        GREENHOUSE_ZONES.put("Zone-C", "Peppers");
-        GREENHOUSE_ZONES.put("Zone-D", "Lettuce");
-        GREENHOUSE_ZONES.put("Zone-E", "Herbs");
+        // Registry order, used as the zone index in snapshots and recordings
+        zoneOrder = ZoneRegistry.getDefault().getZoneNames();
+        for (int i = 0; i < zoneOrder.length; i++) {
+            zoneIndex.put(zoneOrder[i], i);
+        }
+        history = new MoistureHistory(zoneOrder.length, HISTORY_RESOLUTION, HISTORY_RETENTION_MILLIS);
+
+        if (streamConfig.getMode() == SensorStreamConfig.Mode.RECORD) {
+            try {
+                recorder = streamConfig.openRecorder();
+            } catch (IOException e) {
+                System.err.println("[SoilMoistureProducer] Cannot record moisture data: " + e.getMessage());
+            }
+        }
+
+        // First sample, so readers always see a complete snapshot
+        sampleMoistureLevels();
+    }
+
+    // Samples on a background thread at the configured rate, or replays a recording
+    public void start() {
+        sampler = Executors.newSingleThreadScheduledExecutor();
+        if (streamConfig.getMode() == SensorStreamConfig.Mode.REPLAY) {
+            sampler.execute(this::replayMoistureLevels);
+        } else {
+            long interval = streamConfig.getIntervalMillis();
+            sampler.scheduleAtFixedRate(this::sampleMoistureLevels, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        System.out.println("[SoilMoistureProducer] Sampling " + zoneOrder.length + " zones every "
+                + streamConfig.getIntervalMillis() / 1000.0 + " seconds (" + streamConfig + ")");
+    }
+
+    public void stop() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+        System.out.println("[SoilMoistureProducer] Moisture history: " + history.getPointCount() + " readings in "
+                + history.getMemoryBytes() / 1024 + " KB");
+        synchronized (this) {
+            if (recorder != null) {
+                try {
+                    recorder.close();
+                } catch (IOException e) {
+                    // Nothing more to save
+                }
+                recorder = null;
+            }
+        }
+    }
+
+    private void replayMoistureLevels() {
+        try {
+            long cycles = streamConfig.openReplay().run(new SensorReplay.Handler() {
+                private final double[] staged = currentMoisture();
+
+                @Override
+                public void reading(long timestamp, int zone, int channel, double value) {
+                    if (channel == SensorChannel.SOIL_MOISTURE && zone >= 0 && zone < zoneOrder.length) {
+                        staged[zone] = value;
+                    }
+                }
 
-        generateMoistureLevels();
+                @Override
+                public void tick(long timestamp) {
+                    // Swap in the whole cycle at once
+                    publish(timestamp, staged.clone());
+                }
+            });
+            System.out.println("[SoilMoistureProducer] Replay finished after " + cycles + " update cycles");
+        } catch (IOException e) {
+            System.err.println("[SoilMoistureProducer] Replay failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            System.out.println("[SoilMoistureProducer] Moisture replay interrupted");
+        }
     }
 
-    private void generateMoistureLevels() {
-        for (String zone : GREENHOUSE_ZONES.keySet()) {
+    private double[] currentMoisture() {
+        SoilMoistureSnapshot current = snapshot;
+        double[] moisture = new double[current.getZoneCount()];
+        for (int i = 0; i < moisture.length; i++) {
+            moisture[i] = current.getMoisture(i);
+        }
+        return moisture;
+    }
+
+    private void sampleMoistureLevels() {
+        long now = System.currentTimeMillis();
+        double[] moisture = new double[zoneOrder.length];
+        for (int i = 0; i < zoneOrder.length; i++) {
             // Generate random moisture between 20% and 80%
-            moistureLevels.put(zone, 20 + random.nextDouble() * 60);
+            moisture[i] = 20 + random.nextDouble() * 60;
+            recordReading(now, i, moisture[i]);
+        }
+        endRecordedCycle(now);
+        publish(now, moisture);
+    }
+
+    // Only ever called by one thread at a time: the constructor, then the sampler
+    private void publish(long timestamp, double[] moisture) {
+        for (int i = 0; i < moisture.length; i++) {
+            history.append(i, timestamp, moisture[i]);
+        }
+        snapshot = new SoilMoistureSnapshot(++version, timestamp, zoneOrder, zoneIndex, moisture);
+    }
+
+    private synchronized void recordReading(long timestamp, int zone, double moisture) {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.record(timestamp, zone, SensorChannel.SOIL_MOISTURE, moisture);
+        } catch (IOException e) {
+            System.err.println("[SoilMoistureProducer] Recording stopped: " + e.getMessage());
+            recorder = null;
+        }
+    }
+
+    private synchronized void endRecordedCycle(long timestamp) {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.endTick(timestamp);
+        } catch (IOException e) {
+            System.err.println("[SoilMoistureProducer] Recording stopped: " + e.getMessage());
+            recorder = null;
         }
     }
 
-    // Returns updated moisture levels (simulated)
+    @Override
+    public SoilMoistureSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Latest sampled (or replayed) moisture levels; reading no longer generates new values
+    @Override
     public Map<String, Double> getSoilMoistureLevels() {
-        generateMoistureLevels();
-        return moistureLevels;
+        return snapshot.asMap();
+    }
+
+    @Override
+    public MoistureHistorySeries getMoistureHistory(String zoneId, long fromMillis, long toMillis) {
+        Integer zone = zoneIndex.get(zoneId);
+        return zone != null ? history.range(zoneId, zone, fromMillis, toMillis) : null;
+    }
+
+    @Override
+    public MoistureHistorySeries getMoistureHistory(String zoneId, long fromMillis, long toMillis, long bucketMillis) {
+        Integer zone = zoneIndex.get(zoneId);
+        return zone != null ? history.downsample(zoneId, zone, fromMillis, toMillis, bucketMillis) : null;
+    }
+
+    @Override
+    public String[] getAvailableZones() {
+        return zoneOrder.clone();
+    }
+
+    @Override
+    public long getSamplingIntervalMillis() {
+        return streamConfig.getIntervalMillis();
     }
 }
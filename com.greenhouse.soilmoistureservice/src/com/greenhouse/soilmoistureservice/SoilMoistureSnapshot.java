@@ -0,0 +1,119 @@
+package com.greenhouse.soilmoistureservice;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// Immutable view of every zone's latest moisture reading, published once per sampling cycle.
+// Readers can keep a snapshot without locking and compare versions to skip cycles they have seen.
+public final class SoilMoistureSnapshot {
+    private final long version;
+    private final long timestamp;
+    private final String[] zoneIds;
+    private final Map<String, Integer> zoneIndex;
+    private final double[] moisture;
+    private final Map<String, Double> zoneView = new ZoneView();
+
+    SoilMoistureSnapshot(long version, long timestamp, String[] zoneIds, Map<String, Integer> zoneIndex,
+            double[] moisture) {
+        this.version = version;
+        this.timestamp = timestamp;
+        this.zoneIds = zoneIds;
+        this.zoneIndex = zoneIndex;
+        this.moisture = moisture;
+    }
+
+    // Increases by one every time the sampler publishes new readings
+    public long getVersion() {
+        return version;
+    }
+
+    // When the readings in this snapshot were sampled
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getZoneCount() {
+        return zoneIds.length;
+    }
+
+    public String getZoneId(int index) {
+        return zoneIds[index];
+    }
+
+    // Returns the zone's position in this snapshot, or -1 if the zone is unknown
+    public int indexOf(String zoneId) {
+        Integer index = zoneIndex.get(zoneId);
+        return index != null ? index : -1;
+    }
+
+    // Moisture percentage of a zone
+    public double getMoisture(int index) {
+        return moisture[index];
+    }
+
+    // Moisture percentage of a zone, or NaN if the zone is unknown
+    public double getMoisture(String zoneId) {
+        int index = indexOf(zoneId);
+        return index >= 0 ? moisture[index] : Double.NaN;
+    }
+
+    // Read-only map of zone ID to moisture, backed directly by this snapshot's array
+    public Map<String, Double> asMap() {
+        return zoneView;
+    }
+
+    private final class ZoneView extends AbstractMap<String, Double> {
+        private final Set<Map.Entry<String, Double>> entries = new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, Double>> iterator() {
+                return new Iterator<>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < zoneIds.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, Double> next() {
+                        if (next >= zoneIds.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = next++;
+                        return new AbstractMap.SimpleImmutableEntry<>(zoneIds[index], moisture[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return zoneIds.length;
+            }
+        };
+
+        @Override
+        public Set<Map.Entry<String, Double>> entrySet() {
+            return entries;
+        }
+
+        @Override
+        public int size() {
+            return zoneIds.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return zoneIndex.containsKey(key);
+        }
+
+        @Override
+        public Double get(Object key) {
+            Integer index = zoneIndex.get(key);
+            return index != null ? moisture[index] : null;
+        }
+    }
+}
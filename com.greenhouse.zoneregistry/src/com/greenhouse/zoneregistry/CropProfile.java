@@ -0,0 +1,88 @@
+package com.greenhouse.zoneregistry;
+
+/**
+ * Growing conditions of one crop, shared by every zone that grows it
+ */
+public final class CropProfile {
+    private final int id;
+    private final String name;
+    private final double tempMin;
+    private final double tempMax;
+    private final double humidityMin;
+    private final double humidityMax;
+    private final double moistureThreshold;
+    private final long checkIntervalMillis;
+    private final double cropCoefficient;
+
+    CropProfile(int id, String name, double tempMin, double tempMax, double humidityMin, double humidityMax,
+            double moistureThreshold, long checkIntervalMillis, double cropCoefficient) {
+        this.id = id;
+        this.name = name;
+        this.tempMin = tempMin;
+        this.tempMax = tempMax;
+        this.humidityMin = humidityMin;
+        this.humidityMax = humidityMax;
+        this.moistureThreshold = moistureThreshold;
+        this.checkIntervalMillis = checkIntervalMillis;
+        this.cropCoefficient = cropCoefficient;
+    }
+
+    /**
+     * Dense crop id, 0 to {@link ZoneRegistry#getCropCount()} - 1
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Optimal air temperature range in °C
+     */
+    public double getTempMin() {
+        return tempMin;
+    }
+
+    public double getTempMax() {
+        return tempMax;
+    }
+
+    /**
+     * Optimal relative humidity range in %
+     */
+    public double getHumidityMin() {
+        return humidityMin;
+    }
+
+    public double getHumidityMax() {
+        return humidityMax;
+    }
+
+    /**
+     * Soil moisture (%) below which the crop needs irrigation
+     */
+    public double getMoistureThreshold() {
+        return moistureThreshold;
+    }
+
+    /**
+     * Normal time between irrigation checks
+     */
+    public long getCheckIntervalMillis() {
+        return checkIntervalMillis;
+    }
+
+    /**
+     * How much faster than the reference the crop transpires
+     */
+    public double getCropCoefficient() {
+        return cropCoefficient;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,132 @@
+package com.greenhouse.zoneregistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Greenhouse zone and crop topology with dense int ids, so bundles can keep per-zone state in arrays.
+ * Zone ids follow the order of the topology file. The default registry is loaded once from the file
+ * named by the greenhouse.zones.file system property, or from the built-in five-zone topology.
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ */
+public final class ZoneRegistry {
+    public static final String FILE_PROPERTY = "greenhouse.zones.file";
+
+    private static ZoneRegistry defaultRegistry;
+
+    private final String[] zoneNames;
+    private final int[] zoneCrops;
+    private final Map<String, Integer> zoneIds;
+    private final CropProfile[] crops;
+    private final Map<String, Integer> cropIds;
+
+    ZoneRegistry(String[] zoneNames, int[] zoneCrops, Map<String, Integer> zoneIds, CropProfile[] crops,
+            Map<String, Integer> cropIds) {
+        this.zoneNames = zoneNames;
+        this.zoneCrops = zoneCrops;
+        this.zoneIds = zoneIds;
+        this.crops = crops;
+        this.cropIds = cropIds;
+    }
+
+    /**
+     * The registry shared by all bundles, loaded on first use
+     */
+    public static synchronized ZoneRegistry getDefault() {
+        if (defaultRegistry == null) {
+            long start = System.nanoTime();
+            String file = System.getProperty(FILE_PROPERTY);
+            try {
+                defaultRegistry = file != null ? load(Paths.get(file)) : loadBuiltIn();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot load zone topology " + (file != null ? file : "zones.csv")
+                        + ": " + e.getMessage(), e);
+            }
+            System.out.println("[ZoneRegistry] Loaded " + defaultRegistry.getZoneCount() + " zones and "
+                    + defaultRegistry.getCropCount() + " crops in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        return defaultRegistry;
+    }
+
+    /**
+     * Loads a topology file; see zones.csv in this package for the format
+     */
+    public static ZoneRegistry load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return new ZoneTopologyParser(file.toString()).parse(reader);
+        }
+    }
+
+    private static ZoneRegistry loadBuiltIn() throws IOException {
+        InputStream in = ZoneRegistry.class.getResourceAsStream("zones.csv");
+        if (in == null) {
+            throw new IOException("built-in topology not found");
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return new ZoneTopologyParser("zones.csv").parse(reader);
+        }
+    }
+
+    public int getZoneCount() {
+        return zoneNames.length;
+    }
+
+    public String getZoneName(int zoneId) {
+        return zoneNames[zoneId];
+    }
+
+    /**
+     * Returns the zone's dense id, or -1 if the zone is unknown
+     */
+    public int getZoneId(String zoneName) {
+        Integer id = zoneIds.get(zoneName);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * All zone names, indexed by zone id
+     */
+    public String[] getZoneNames() {
+        return zoneNames.clone();
+    }
+
+    public int getCropId(int zoneId) {
+        return zoneCrops[zoneId];
+    }
+
+    public CropProfile getCropProfile(int zoneId) {
+        return crops[zoneCrops[zoneId]];
+    }
+
+    /**
+     * Returns the crop grown in a zone, or null if the zone is unknown
+     */
+    public CropProfile getCropProfile(String zoneName) {
+        int zoneId = getZoneId(zoneName);
+        return zoneId >= 0 ? crops[zoneCrops[zoneId]] : null;
+    }
+
+    public int getCropCount() {
+        return crops.length;
+    }
+
+    public CropProfile getCrop(int cropId) {
+        return crops[cropId];
+    }
+
+    /**
+     * Returns the crop with this name, or null if there is none
+     */
+    public CropProfile findCrop(String cropName) {
+        Integer id = cropIds.get(cropName);
+        return id != null ? crops[id] : null;
+    }
+}
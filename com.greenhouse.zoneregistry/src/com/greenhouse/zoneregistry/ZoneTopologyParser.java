@@ -0,0 +1,221 @@
+package com.greenhouse.zoneregistry;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming parser for zone topology files. Reads through a fixed character buffer and splits
+ * fields in place, so loading 100k zones needs no per-line strings beyond the names it keeps.
+ * Crops may be referenced by zones before they are defined.
+ */
+final class ZoneTopologyParser {
+    private static final int MAX_FIELDS = 9;
+
+    private final String source;
+    private final char[] buffer = new char[64 * 1024];
+    private char[] line = new char[256];
+    private final int[] fieldStart = new int[MAX_FIELDS + 1];
+    private final int[] fieldEnd = new int[MAX_FIELDS + 1];
+    private int lineNumber;
+
+    private String[] zoneNames = new String[1024];
+    private int[] zoneCrops = new int[1024];
+    private int zoneCount;
+    private final Map<String, Integer> zoneIds = new HashMap<>();
+    private CropProfile[] crops = new CropProfile[16];
+    private String[] cropNames = new String[16];
+    private int cropCount;
+    private final Map<String, Integer> cropIds = new HashMap<>();
+
+    ZoneTopologyParser(String source) {
+        this.source = source;
+    }
+
+    ZoneRegistry parse(Reader reader) throws IOException {
+        int length = 0;
+        int read;
+        while ((read = reader.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                if (c == '\n') {
+                    parseLine(length);
+                    length = 0;
+                } else if (c != '\r') {
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, length * 2);
+                    }
+                    line[length++] = c;
+                }
+            }
+        }
+        if (length > 0) {
+            parseLine(length);
+        }
+
+        for (int crop = 0; crop < cropCount; crop++) {
+            if (crops[crop] == null) {
+                throw new IllegalArgumentException(source + ": crop " + cropNames[crop]
+                        + " is used by a zone but never defined");
+            }
+        }
+        return new ZoneRegistry(Arrays.copyOf(zoneNames, zoneCount), Arrays.copyOf(zoneCrops, zoneCount), zoneIds,
+                Arrays.copyOf(crops, cropCount), cropIds);
+    }
+
+    private void parseLine(int length) {
+        lineNumber++;
+        int fields = split(length);
+        if (fields == 0 || line[fieldStart[0]] == '#') {
+            return;
+        }
+        if (matches(0, "zone")) {
+            expectFields(fields, 3);
+            addZone(field(1), cropId(field(2)));
+        } else if (matches(0, "crop")) {
+            expectFields(fields, 9);
+            String name = field(1);
+            int id = cropId(name);
+            if (crops[id] != null) {
+                throw error("crop " + name + " is defined twice");
+            }
+            double tempMin = number(2);
+            double tempMax = number(3);
+            double humidityMin = percentage(4);
+            double humidityMax = percentage(5);
+            if (tempMin > tempMax) {
+                throw error("crop " + name + " has a minimum temperature above its maximum");
+            }
+            if (humidityMin > humidityMax) {
+                throw error("crop " + name + " has a minimum humidity above its maximum");
+            }
+            long checkInterval = wholeNumber(7);
+            if (checkInterval <= 0) {
+                throw error("field 8 (check interval) must be a positive number of milliseconds");
+            }
+            double cropCoefficient = number(8);
+            if (cropCoefficient <= 0) {
+                throw error("field 9 (crop coefficient) must be above 0");
+            }
+            crops[id] = new CropProfile(id, name, tempMin, tempMax, humidityMin, humidityMax, percentage(6),
+                    checkInterval, cropCoefficient);
+        } else {
+            throw error("expected a zone or crop record");
+        }
+    }
+
+    // Trimmed comma-separated fields of the current line; returns 0 for a blank line
+    private int split(int length) {
+        int fields = 0;
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || line[i] == ',') {
+                if (fields == MAX_FIELDS + 1) {
+                    throw error("too many fields");
+                }
+                int from = start;
+                int to = i;
+                while (from < to && line[from] <= ' ') {
+                    from++;
+                }
+                while (to > from && line[to - 1] <= ' ') {
+                    to--;
+                }
+                fieldStart[fields] = from;
+                fieldEnd[fields] = to;
+                fields++;
+                start = i + 1;
+            }
+        }
+        return fields == 1 && fieldStart[0] == fieldEnd[0] ? 0 : fields;
+    }
+
+    private boolean matches(int field, String text) {
+        int length = fieldEnd[field] - fieldStart[field];
+        if (length != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line[fieldStart[field] + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String field(int field) {
+        if (fieldStart[field] == fieldEnd[field]) {
+            throw error("field " + (field + 1) + " is empty");
+        }
+        return new String(line, fieldStart[field], fieldEnd[field] - fieldStart[field]);
+    }
+
+    private double number(int field) {
+        double value;
+        try {
+            value = Double.parseDouble(field(field));
+        } catch (NumberFormatException e) {
+            throw error("field " + (field + 1) + " is not a number");
+        }
+        if (!Double.isFinite(value)) {
+            throw error("field " + (field + 1) + " is not a finite number");
+        }
+        return value;
+    }
+
+    private double percentage(int field) {
+        double value = number(field);
+        if (value < 0 || value > 100) {
+            throw error("field " + (field + 1) + " must be between 0 and 100");
+        }
+        return value;
+    }
+
+    private long wholeNumber(int field) {
+        try {
+            return Long.parseLong(field(field));
+        } catch (NumberFormatException e) {
+            throw error("field " + (field + 1) + " is not a whole number");
+        }
+    }
+
+    private void expectFields(int fields, int expected) {
+        if (fields != expected) {
+            throw error("expected " + expected + " fields but found " + fields);
+        }
+    }
+
+    private void addZone(String name, int crop) {
+        if (zoneIds.putIfAbsent(name, zoneCount) != null) {
+            throw error("zone " + name + " is defined twice");
+        }
+        if (zoneCount == zoneNames.length) {
+            zoneNames = Arrays.copyOf(zoneNames, zoneCount * 2);
+            zoneCrops = Arrays.copyOf(zoneCrops, zoneCount * 2);
+        }
+        zoneNames[zoneCount] = name;
+        zoneCrops[zoneCount] = crop;
+        zoneCount++;
+    }
+
+    // Id of a crop by name, reserving one for crops that are referenced before they are defined
+    private int cropId(String name) {
+        Integer id = cropIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (cropCount == crops.length) {
+            crops = Arrays.copyOf(crops, cropCount * 2);
+            cropNames = Arrays.copyOf(cropNames, cropCount * 2);
+        }
+        cropNames[cropCount] = name;
+        cropIds.put(name, cropCount);
+        return cropCount++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(source + " line " + lineNumber + ": " + message);
+    }
+}